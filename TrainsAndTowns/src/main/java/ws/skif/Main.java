@@ -1,15 +1,27 @@
 package ws.skif;
 
+import ws.skif.graph.models.CsrGraph;
 import ws.skif.graph.models.Graph;
+import ws.skif.graph.models.MappedGraphReader;
 import ws.skif.graph.models.Route;
 import ws.skif.graph.models.RouteList;
+import ws.skif.graph.models.StationIndex;
 import ws.skif.graph.models.VertexPair;
+import ws.skif.graph.utils.GraphSnapshot;
 import ws.skif.graph.utils.GraphUtils;
+import ws.skif.graph.utils.RouteQueryService;
+import ws.skif.server.BatchProcessor;
+import ws.skif.server.QueryProtocol;
+import ws.skif.server.RouteServer;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
 
@@ -33,21 +45,63 @@ public class Main {
 
         // Search for type of file
         if (!argsMap.containsKey("t")) {
-            System.out.println("Argument -t m or -t l is missing");
+            System.out.println("Argument -t m, -t l, -t n or -t b is missing");
             printHelp();
             return;
         }
 
+        // Do not store missing edges
+        boolean sparse = argsMap.containsKey("s") && Boolean.parseBoolean(argsMap.get("s"));
+
+        // Read file with memory-mapped loader
+        boolean mapped = argsMap.containsKey("m") && Boolean.parseBoolean(argsMap.get("m"));
+
+        // Read snapshot with computed paths, nothing is parsed or computed again
+        boolean snapshot = argsMap.get("t").equalsIgnoreCase("b");
+
+        // Names of stations for list of named stations or snapshot saved with names
+        boolean named = argsMap.get("t").equalsIgnoreCase("n");
+        StationIndex stations = named || snapshot ? new StationIndex() : null;
+
         // Read file and make matrix
-        Graph graph;
+        CsrGraph graph = null;
+        GraphUtils utils = null;
         try {
-            if (argsMap.get("t").equalsIgnoreCase("m")) {
-                graph = Graph.fromMatrix(argsMap.get("f"));
+            boolean matrix = argsMap.get("t").equalsIgnoreCase("m");
+            if (named) {
+                graph = mapped
+                        ? new MappedGraphReader().readStations(argsMap.get("f"), sparse, stations)
+                        : Graph.fromStations(argsMap.get("f"), sparse, stations).compile();
+                System.err.println(String.format("Loaded %d stations, %d bytes in index",
+                                                 stations.size(), stations.getMemory()));
+            } else if (snapshot) {
+                long start = System.nanoTime();
+                utils = argsMap.containsKey("c")
+                        ? GraphSnapshot.read(argsMap.get("f"), Integer.parseInt(argsMap.get("c")), stations)
+                        : GraphSnapshot.read(argsMap.get("f"), stations);
+                System.err.println(String.format("Snapshot loaded in %d ms", (System.nanoTime() - start) / 1_000_000));
+                if (stations.size() == 0) {
+                    stations = null;
+                }
+            } else if (mapped) {
+                MappedGraphReader reader = new MappedGraphReader();
+                graph = matrix
+                        ? reader.readMatrix(argsMap.get("f"), sparse)
+                        : reader.readList(argsMap.get("f"), sparse, ForkJoinPool.commonPool());
+                System.err.println(String.format("Loaded %d bytes in %d ms, %.1f MB/s",
+                                                 reader.getBytes(), reader.getMillis(), reader.getThroughput()));
+            } else if (matrix) {
+                graph = Graph.fromMatrix(argsMap.get("f"), sparse).compile();
             } else {
-                graph = Graph.fromList(argsMap.get("f"));
+                graph = Graph.fromList(argsMap.get("f"), sparse).compile();
             }
-        } catch (NumberFormatException | ArrayIndexOutOfBoundsException exp) {
-            System.out.println("Invalid file format!");
+        } catch (NumberFormatException | IndexOutOfBoundsException exp) {
+            System.out.println(snapshot && exp instanceof NumberFormatException
+                                       ? "Invalid number of trees: " + argsMap.get("c")
+                                       : "Invalid file format!");
+            return;
+        } catch (IllegalArgumentException exp) {
+            System.out.println("Invalid number of trees: " + argsMap.get("c"));
             return;
         } catch (IOException exp) {
             System.out.println(exp.getMessage());
@@ -76,7 +130,47 @@ public class Main {
         route5.add(new VertexPair(0, 4));
         route5.add(new VertexPair(4, 3));
 
-        GraphUtils utils = new GraphUtils(graph);
+        // Compute minimal paths on demand and keep only the given number of trees
+        if (utils == null) {
+            try {
+                utils = argsMap.containsKey("c")
+                        ? new GraphUtils(graph, Integer.parseInt(argsMap.get("c")))
+                        : new GraphUtils(graph);
+            } catch (IllegalArgumentException exp) {
+                System.out.println("Invalid number of trees: " + argsMap.get("c"));
+                return;
+            }
+        }
+
+        // Save graph and computed paths for the next start
+        if (argsMap.containsKey("w")) {
+            try {
+                GraphSnapshot.write(utils, stations, argsMap.get("w"));
+            } catch (IOException exp) {
+                System.out.println(exp.getMessage());
+                return;
+            }
+        }
+
+        // Keep graph in memory and answer queries from the socket
+        QueryProtocol protocol = new QueryProtocol(new RouteQueryService(utils), stations);
+
+        if (argsMap.containsKey("p")) {
+            serve(protocol, argsMap.get("p"));
+            return;
+        }
+
+        // Answer queries from file or standard input
+        if (argsMap.containsKey("b")) {
+            batch(protocol, argsMap.get("b"));
+            return;
+        }
+
+        // Routes below are given by letters A-E
+        if (stations != null) {
+            System.out.println("Add -p <Port> or -b <Filename> to query stations by name");
+            return;
+        }
 
         List<Route> routeList9 = utils.commisVoyageur(1, -1, -1).getRoutes();
         double minRoute = Integer.MAX_VALUE;
@@ -99,6 +193,67 @@ public class Main {
         System.out.println("#10: " + utils.getAllRoutesCount(2, 30));
     }
 
+    /**
+     * Run server of route queries until the process is stopped
+     *
+     * @param protocol Protocol with computed paths
+     * @param port     Port number
+     */
+    private static void serve(QueryProtocol protocol, String port) {
+        RouteServer server;
+        try {
+            server = new RouteServer(protocol, Integer.parseInt(port));
+        } catch (IllegalArgumentException exp) {
+            System.out.println("Invalid port: " + port);
+            return;
+        } catch (IOException exp) {
+            System.out.println(exp.getMessage());
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException exp) {
+                System.out.println(exp.getMessage());
+            }
+        }));
+        System.out.println("Listening on port " + server.getPort());
+        try {
+            server.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Answer queries from file and write answers to standard output
+     *
+     * @param protocol Protocol with computed paths
+     * @param fileName File with queries, "-" for standard input
+     */
+    private static void batch(QueryProtocol protocol, String fileName) {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        BatchProcessor processor = new BatchProcessor(protocol, executor);
+        InputStream input = null;
+        try {
+            input = fileName.equals("-") ? System.in : new FileInputStream(fileName);
+            BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            processor.process(in, out);
+        } catch (IOException exp) {
+            System.err.println(exp.getMessage());
+        } finally {
+            executor.shutdown();
+            if (input != null && input != System.in) {
+                try {
+                    input.close();
+                } catch (IOException exp) {
+                    System.err.println(exp.getMessage());
+                }
+            }
+        }
+    }
 
     /**
      * Print help
@@ -107,6 +262,14 @@ public class Main {
         System.out.println("Usage:");
         System.out.println("<Application> -f \"<Filename>\" -t l - for the list type");
         System.out.println("<Application> -f \"<Filename>\" -t m - for the matrix type");
+        System.out.println("<Application> -f \"<Filename>\" -t n - for the list of named stations: from,to,weight");
+        System.out.println("<Application> -f \"<Filename>\" -t b - for the binary snapshot");
+        System.out.println("Add -s true to skip missing edges on load (sparse graph)");
+        System.out.println("Add -m true to load the file by fast memory-mapped loader");
+        System.out.println("Add -c <Number> to compute minimal paths on demand and keep <Number> trees in memory");
+        System.out.println("Add -p <Port> to keep the graph in memory and answer queries on local port");
+        System.out.println("Add -b <Filename> to answer queries from file, - for standard input");
+        System.out.println("Add -w <Filename> to save the graph and computed paths as binary snapshot");
     }
 
     /**
@@ -0,0 +1,504 @@
+package ws.skif.graph.models;
+
+import java.util.Arrays;
+
+/**
+ * Immutable graph in compressed sparse row (CSR) form.
+ * Vertexes are split to blocks of BLOCK_SIZE vertexes, each block has its own offsets
+ * and arrays of targets and weights: edges of vertex v are in [edgeStart(v), edgeEnd(v))
+ * of getTargets(v) and getWeights(v), so the algorithms walk the adjacency without per-edge objects.
+ * Graph loaded from flat arrays shares them between all blocks. Changed graph shares all blocks
+ * except the one of changed vertex, so a change costs O(V / BLOCK_SIZE + edges of block).
+ */
+public class CsrGraph {
+
+    static final int BLOCK_SHIFT = 6;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;     // Number of vertexes in block
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /**
+     * Edges of BLOCK_SIZE vertexes, the last block may be shorter
+     */
+    private static final class Block {
+        private final int[] offsets;                    // Start of edges of each vertex of block in arrays, + end
+        private final int[] targets;                    // Destination vertexes, may be shared with other blocks
+        private final double[] weights;                 // Weights of edges, may be shared with other blocks
+        private final boolean negative;                 // Block has negative edges
+
+        private Block(int[] offsets, int[] targets, double[] weights, boolean negative) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.negative = negative;
+        }
+    }
+
+    private final int totalVertex;                      // Number of vertexes
+    private final int edgeCount;                        // Number of edges
+    private final Block[] blocks;                       // Edges of vertexes by blocks
+    private final int[] offsets;                        // Flat arrays shared by blocks, null for changed graph
+    private final int[] targets;
+    private final double[] weights;
+    private final boolean negativeEdge;                 // Graph has negative edges
+    private final double[] latitudes;                   // Latitude of each vertex, may be null
+    private final double[] longitudes;                  // Longitude of each vertex, may be null
+    private volatile CsrGraph reverse;                  // Graph with reversed edges, built on demand
+
+    /**
+     * Constructor. Arrays are not copied and must not be changed after.
+     *
+     * @param offsets      Start of edges for each vertex
+     * @param targets      Destination vertexes
+     * @param weights      Weights of edges
+     * @param negativeEdge Graph has negative edges
+     */
+    public CsrGraph(int[] offsets, int[] targets, double[] weights, boolean negativeEdge) {
+        this(offsets, targets, weights, negativeEdge, null, null);
+    }
+
+    /**
+     * Constructor. Arrays are not copied and must not be changed after,
+     * blocks share them and keep only their part of offsets.
+     *
+     * @param offsets      Start of edges for each vertex
+     * @param targets      Destination vertexes
+     * @param weights      Weights of edges
+     * @param negativeEdge Graph has negative edges
+     * @param latitudes    Latitude of each vertex, may be null
+     * @param longitudes   Longitude of each vertex, may be null
+     */
+    public CsrGraph(int[] offsets, int[] targets, double[] weights, boolean negativeEdge,
+                    double[] latitudes, double[] longitudes) {
+        this.totalVertex = offsets.length - 1;
+        this.edgeCount = offsets[totalVertex];
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.negativeEdge = negativeEdge;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        blocks = new Block[(totalVertex + BLOCK_MASK) >>> BLOCK_SHIFT];
+        for (int b = 0; b < blocks.length; b++) {
+            int first = b << BLOCK_SHIFT;
+            int last = Math.min(first + BLOCK_SIZE, totalVertex);
+            boolean negative = negativeEdge && hasNegative(weights, offsets[first], offsets[last]);
+            blocks[b] = new Block(Arrays.copyOfRange(offsets, first, last + 1), targets, weights, negative);
+        }
+    }
+
+    private CsrGraph(CsrGraph graph, Block[] blocks, int edgeCount, double[] latitudes, double[] longitudes) {
+        this.totalVertex = graph.totalVertex;
+        this.edgeCount = edgeCount;
+        this.blocks = blocks;
+        boolean same = blocks == graph.blocks;
+        this.offsets = same ? graph.offsets : null;
+        this.targets = same ? graph.targets : null;
+        this.weights = same ? graph.weights : null;
+        boolean negative = false;
+        for (Block block : blocks) {
+            negative |= block.negative;
+        }
+        this.negativeEdge = negative;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * Number of vertex for graph
+     *
+     * @return
+     */
+    public int getCount() {
+        return totalVertex;
+    }
+
+    /**
+     * Number of edges for graph
+     *
+     * @return
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Graph has negative edges
+     *
+     * @return
+     */
+    public boolean isNegativeEdge() {
+        return negativeEdge;
+    }
+
+    /**
+     * Graph has coordinates of vertexes
+     *
+     * @return
+     */
+    public boolean hasCoordinates() {
+        return latitudes != null;
+    }
+
+    /**
+     * Latitude of each vertex in degrees, NaN if unknown.
+     * Returned array is shared and must not be changed.
+     *
+     * @return Array or null, if graph has no coordinates
+     */
+    public double[] getLatitudes() {
+        return latitudes;
+    }
+
+    /**
+     * Longitude of each vertex in degrees, NaN if unknown.
+     * Returned array is shared and must not be changed.
+     *
+     * @return Array or null, if graph has no coordinates
+     */
+    public double[] getLongitudes() {
+        return longitudes;
+    }
+
+    /**
+     * The same graph with coordinates of vertexes
+     *
+     * @param latitudes  Latitude of each vertex
+     * @param longitudes Longitude of each vertex
+     * @return New graph, edges are shared with this graph
+     */
+    public CsrGraph withCoordinates(double[] latitudes, double[] longitudes) {
+        return new CsrGraph(this, blocks, edgeCount, latitudes, longitudes);
+    }
+
+    /**
+     * Flat edge offsets. Edges of vertex v are in [offsets[v], offsets[v + 1]) of getTargets() and getWeights().
+     * Array of loaded graph is shared and must not be changed, changed graph builds new array, O(V).
+     *
+     * @return
+     */
+    public int[] getOffsets() {
+        return flat().offsets;
+    }
+
+    /**
+     * Flat array with destination vertex of each edge.
+     * Array of loaded graph is shared and must not be changed, changed graph builds new array, O(V + E).
+     * Algorithms use getTargets(vertex), which does not build anything.
+     *
+     * @return
+     */
+    public int[] getTargets() {
+        return flat().targets;
+    }
+
+    /**
+     * Flat array with weight of each edge.
+     * Array of loaded graph is shared and must not be changed, changed graph builds new array, O(V + E).
+     * Algorithms use getWeights(vertex), which does not build anything.
+     *
+     * @return
+     */
+    public double[] getWeights() {
+        return flat().weights;
+    }
+
+    /**
+     * Array with destination vertexes of edges of vertex, the edges are in [edgeStart(vertex), edgeEnd(vertex)).
+     * Returned array is shared and must not be changed.
+     *
+     * @param vertex
+     * @return
+     */
+    public int[] getTargets(int vertex) {
+        return blocks[vertex >>> BLOCK_SHIFT].targets;
+    }
+
+    /**
+     * Array with weights of edges of vertex, the edges are in [edgeStart(vertex), edgeEnd(vertex)).
+     * Returned array is shared and must not be changed.
+     *
+     * @param vertex
+     * @return
+     */
+    public double[] getWeights(int vertex) {
+        return blocks[vertex >>> BLOCK_SHIFT].weights;
+    }
+
+    /**
+     * Index of first edge of vertex in getTargets(vertex) and getWeights(vertex)
+     *
+     * @param vertex
+     * @return
+     */
+    public int edgeStart(int vertex) {
+        return blocks[vertex >>> BLOCK_SHIFT].offsets[vertex & BLOCK_MASK];
+    }
+
+    /**
+     * Index after the last edge of vertex in getTargets(vertex) and getWeights(vertex)
+     *
+     * @param vertex
+     * @return
+     */
+    public int edgeEnd(int vertex) {
+        return blocks[vertex >>> BLOCK_SHIFT].offsets[(vertex & BLOCK_MASK) + 1];
+    }
+
+    /**
+     * Search for edge between 2 vertexes
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return Index of edge in getTargets(from) and getWeights(from) or -1, if there is no such edge
+     */
+    public int findEdge(int from, int to) {
+        int[] vertexTargets = getTargets(from);
+        for (int e = edgeStart(from); e < edgeEnd(from); e++) {
+            if (vertexTargets[e] == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Graph with flat arrays: this graph, if it was not changed, otherwise a copy, O(V + E)
+     *
+     * @return
+     */
+    private CsrGraph flat() {
+        if (offsets != null) {
+            return this;
+        }
+        int[] newOffsets = new int[totalVertex + 1];
+        int[] newTargets = new int[edgeCount];
+        double[] newWeights = new double[edgeCount];
+        for (int b = 0; b < blocks.length; b++) {
+            Block block = blocks[b];
+            int first = b << BLOCK_SHIFT;
+            int count = block.offsets.length - 1;
+            int position = newOffsets[first];
+            int length = block.offsets[count] - block.offsets[0];
+            System.arraycopy(block.targets, block.offsets[0], newTargets, position, length);
+            System.arraycopy(block.weights, block.offsets[0], newWeights, position, length);
+            for (int i = 0; i < count; i++) {
+                newOffsets[first + i + 1] = position + block.offsets[i + 1] - block.offsets[0];
+            }
+        }
+        return new CsrGraph(newOffsets, newTargets, newWeights, negativeEdge, latitudes, longitudes);
+    }
+
+    /**
+     * Graph with the same vertexes and reversed edges.
+     * Edges to each vertex keep the order of their source vertexes.
+     * Built on first request and shared after that.
+     *
+     * @return Reversed graph
+     */
+    public CsrGraph getReverse() {
+        CsrGraph result = reverse;
+        if (result == null) {
+            int[] newOffsets = new int[totalVertex + 1];
+            int[] newTargets = new int[edgeCount];
+            double[] newWeights = new double[edgeCount];
+
+            // Count incoming edges
+            for (int u = 0; u < totalVertex; u++) {
+                int[] vertexTargets = getTargets(u);
+                for (int e = edgeStart(u); e < edgeEnd(u); e++) {
+                    newOffsets[vertexTargets[e] + 1]++;
+                }
+            }
+            for (int v = 0; v < totalVertex; v++) {
+                newOffsets[v + 1] += newOffsets[v];
+            }
+
+            // Place edges, next free position of each vertex is kept in fill
+            int[] fill = new int[totalVertex];
+            System.arraycopy(newOffsets, 0, fill, 0, totalVertex);
+            for (int u = 0; u < totalVertex; u++) {
+                int[] vertexTargets = getTargets(u);
+                double[] vertexWeights = getWeights(u);
+                for (int e = edgeStart(u); e < edgeEnd(u); e++) {
+                    int position = fill[vertexTargets[e]]++;
+                    newTargets[position] = u;
+                    newWeights[position] = vertexWeights[e];
+                }
+            }
+
+            result = new CsrGraph(newOffsets, newTargets, newWeights, negativeEdge, latitudes, longitudes);
+            result.reverse = this;
+            reverse = result;
+        }
+        return result;
+    }
+
+    /**
+     * Copy of graph with additional vertex, which has edges
+     * with zero length to all other vertexes.
+     * New vertex has index getCount()
+     *
+     * @return New graph
+     */
+    public CsrGraph withSource() {
+        CsrGraph graph = flat();
+        int[] newOffsets = new int[totalVertex + 2];
+        int[] newTargets = new int[edgeCount + totalVertex];
+        double[] newWeights = new double[edgeCount + totalVertex];
+
+        System.arraycopy(graph.offsets, 0, newOffsets, 0, totalVertex + 1);
+        System.arraycopy(graph.targets, 0, newTargets, 0, edgeCount);
+        System.arraycopy(graph.weights, 0, newWeights, 0, edgeCount);
+        for (int i = 0; i < totalVertex; i++) {
+            newTargets[edgeCount + i] = i;
+        }
+        newOffsets[totalVertex + 1] = edgeCount + totalVertex;
+
+        return new CsrGraph(newOffsets, newTargets, newWeights, negativeEdge);
+    }
+
+    /**
+     * Copy of graph with changed edge.
+     * If graph has edge between vertexes, weight of the first such edge is changed,
+     * otherwise new edge is added after other edges of vertex.
+     * Only the block of from vertex is copied, other blocks are shared with this graph.
+     *
+     * @param from   From vertex
+     * @param to     To vertex
+     * @param weight New weight
+     * @return New graph
+     */
+    public CsrGraph withEdge(int from, int to, double weight) {
+        checkVertex(from);
+        checkVertex(to);
+        if (Double.isNaN(weight)) {
+            throw new IllegalArgumentException("Invalid weight: " + weight);
+        }
+
+        boolean added = findEdge(from, to) == -1;
+        Block[] newBlocks = blocks.clone();
+        newBlocks[from >>> BLOCK_SHIFT] = changeBlock(from, to, weight, false);
+        return new CsrGraph(this, newBlocks, added ? edgeCount + 1 : edgeCount, latitudes, longitudes);
+    }
+
+    /**
+     * Copy of graph without edges between vertexes.
+     * Only the block of from vertex is copied, other blocks are shared with this graph.
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return New graph or this graph, if there is no such edge
+     */
+    public CsrGraph withoutEdge(int from, int to) {
+        checkVertex(from);
+        checkVertex(to);
+        int removed = 0;
+        int[] vertexTargets = getTargets(from);
+        for (int e = edgeStart(from); e < edgeEnd(from); e++) {
+            if (vertexTargets[e] == to) {
+                removed++;
+            }
+        }
+        if (removed == 0) {
+            return this;
+        }
+
+        Block[] newBlocks = blocks.clone();
+        newBlocks[from >>> BLOCK_SHIFT] = changeBlock(from, to, 0, true);
+        return new CsrGraph(this, newBlocks, edgeCount - removed, latitudes, longitudes);
+    }
+
+    /**
+     * Copy of block of from vertex with own arrays: edges to the vertex are removed,
+     * or weight of the first such edge is changed, or new edge is added
+     *
+     * @param from   From vertex
+     * @param to     To vertex
+     * @param weight New weight
+     * @param remove Remove edges
+     * @return New block
+     */
+    private Block changeBlock(int from, int to, double weight, boolean remove) {
+        Block block = blocks[from >>> BLOCK_SHIFT];
+        int changed = from & BLOCK_MASK;
+        int count = block.offsets.length - 1;
+        int size = block.offsets[count] - block.offsets[0] + 1;
+        int[] newOffsets = new int[count + 1];
+        int[] newTargets = new int[size];
+        double[] newWeights = new double[size];
+        boolean negative = false;
+
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            boolean found = false;
+            for (int e = block.offsets[i]; e < block.offsets[i + 1]; e++) {
+                double edgeWeight = block.weights[e];
+                if (i == changed && block.targets[e] == to) {
+                    if (remove) {
+                        continue;
+                    }
+                    if (!found) {
+                        edgeWeight = weight;
+                        found = true;
+                    }
+                }
+                newTargets[position] = block.targets[e];
+                newWeights[position++] = edgeWeight;
+                negative |= edgeWeight < 0;
+            }
+            if (i == changed && !remove && !found) {
+                newTargets[position] = to;
+                newWeights[position++] = weight;
+                negative |= weight < 0;
+            }
+            newOffsets[i + 1] = position;
+        }
+
+        if (position < size) {
+            newTargets = Arrays.copyOf(newTargets, position);
+            newWeights = Arrays.copyOf(newWeights, position);
+        }
+        return new Block(newOffsets, newTargets, newWeights, negative);
+    }
+
+    private void checkVertex(int vertex) {
+        if (vertex < 0 || vertex >= totalVertex) {
+            throw new IllegalArgumentException("Invalid vertex: " + vertex);
+        }
+    }
+
+    private static boolean hasNegative(double[] weights, int from, int to) {
+        for (int e = from; e < to; e++) {
+            if (weights[e] < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy of graph with edges corrected by potentials:
+     * weight(u, v) + potentials[u] - potentials[v].
+     * Structure of graph is shared with this graph, if it was not changed.
+     *
+     * @param potentials Potential of each vertex
+     * @return New graph
+     */
+    public CsrGraph reweight(double[] potentials) {
+        CsrGraph graph = flat();
+        double[] newWeights = new double[edgeCount];
+        boolean negative = false;
+
+        for (int u = 0; u < totalVertex; u++) {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                newWeights[e] = graph.weights[e] + (potentials[u] - potentials[graph.targets[e]]);
+                if (newWeights[e] < 0) {
+                    negative = true;
+                }
+            }
+        }
+
+        return new CsrGraph(graph.offsets, graph.targets, newWeights, negative, latitudes, longitudes);
+    }
+}
@@ -6,6 +6,7 @@ package ws.skif.graph.models;
 public class Edge {
     double weight;
     int to;
+    boolean removed;                    // Edge of removed vertex, is dropped by Graph.compact()
 
     public double getWeight() {
         return weight;
@@ -23,6 +24,15 @@ public class Edge {
         this.to = to;
     }
 
+    /**
+     * Edge belongs to removed vertex and must be skipped
+     *
+     * @return
+     */
+    public boolean isRemoved() {
+        return removed;
+    }
+
     public Edge(int to, double info) {
         this.to = to;
         this.weight = info;
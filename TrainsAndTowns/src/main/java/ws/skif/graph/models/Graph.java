@@ -14,16 +14,26 @@ import java.util.regex.Pattern;
  */
 public class Graph {
 
+    public static final double NO_EDGE = Double.MAX_VALUE; // Weight of placeholder for missing edge
+
     private List<List<Edge>> graphList;                 // List of adjacent
+    private ReverseAdjacency reverse;                   // Edges into each vertex
+    private BitSet removed;                             // Removed vertexes, kept until compact()
+    private int removedEdges;                           // Number of edges of removed vertexes
     private int totalVertex;                            // Number of vertexes
     private boolean negativeEdge;                       // Graph has negative edges
+    private boolean sparse;                             // Missing edges are not stored
     private Map<Integer, List<Integer>> vertexAdjacent;
+    private double[] latitudes;                         // Latitude of each vertex, NaN if unknown
+    private double[] longitudes;                        // Longitude of each vertex, NaN if unknown
 
     /**
      * Empty constructor
      */
     public Graph() {
         graphList = new ArrayList<>();
+        reverse = new ReverseAdjacency();
+        removed = new BitSet();
         vertexAdjacent = new HashMap<>();
     }
 
@@ -45,6 +55,48 @@ public class Graph {
         return negativeEdge;
     }
 
+    /**
+     * Missing edges are not stored.
+     * Otherwise every missing edge is stored with NO_EDGE weight
+     *
+     * @return
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Number of stored edges, edges of removed vertexes are not counted
+     *
+     * @return
+     */
+    public int getEdgeCount() {
+        int count = 0;
+        for (List<Edge> list : graphList) {
+            count += list.size();
+        }
+        return count - removedEdges;
+    }
+
+    /**
+     * Number of removed vertexes, which are still kept in graph
+     *
+     * @return
+     */
+    public int getRemovedCount() {
+        return removed.cardinality();
+    }
+
+    /**
+     * Vertex was removed
+     *
+     * @param vertex
+     * @return
+     */
+    public boolean isRemoved(int vertex) {
+        return removed.get(vertex);
+    }
+
     /**
      * Add edge to the graph.
      * It is assumed that earlier there was no such edge.
@@ -52,9 +104,62 @@ public class Graph {
      * @param from     Source vertex (start)
      * @param to       Destination vertex (end)
      * @param distance Distance
+     * @throws IllegalArgumentException if one of vertexes is removed
      */
     public void addEdge(int from, int to, double distance) {
-        graphList.get(from).add(new Edge(to, distance));
+        if (removed.get(from) || removed.get(to)) {
+            throw new IllegalArgumentException("Removed vertex: " + (removed.get(from) ? from : to));
+        }
+        List<Edge> list = graphList.get(from);
+        list.add(new Edge(to, distance));
+        // Lists of edges only grow, so position of edge identifies it
+        reverse.add(from, list.size() - 1, to);
+    }
+
+    /**
+     * Number of edges into vertex, edges of removed vertexes are not counted
+     *
+     * @param vertex
+     * @return
+     */
+    public int getInDegree(int vertex) {
+        if (removedEdges == 0) {
+            return reverse.degree(vertex);
+        }
+        int[] count = new int[1];
+        reverse.forEach(vertex, (source, position) -> {
+            if (!graphList.get(source).get(position).removed) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Source vertexes of edges into vertex, O(in-degree).
+     * Vertex is repeated for each of parallel edges, edges of removed vertexes are skipped
+     *
+     * @param vertex
+     * @return
+     */
+    public int[] getPredecessors(int vertex) {
+        int[] result = new int[reverse.degree(vertex)];
+        int[] size = new int[1];
+        reverse.forEach(vertex, (source, position) -> {
+            if (!graphList.get(source).get(position).removed) {
+                result[size[0]++] = source;
+            }
+        });
+        return size[0] == result.length ? result : Arrays.copyOf(result, size[0]);
+    }
+
+    /**
+     * Memory used by index of incoming edges
+     *
+     * @return Bytes
+     */
+    public long getReverseMemory() {
+        return reverse.getMemory();
     }
 
     /**
@@ -73,6 +178,29 @@ public class Graph {
         }
     }
 
+    /**
+     * Add edge read from source file.
+     * Zero weight means there is no edge
+     *
+     * @param from   Source vertex (start)
+     * @param to     Destination vertex (end)
+     * @param weight Weight from file
+     */
+    private void addInputEdge(int from, int to, double weight) {
+        if (weight < 0) {
+            negativeEdge = true;
+        } else if (weight == 0) {
+            if (sparse) {
+                return;
+            }
+            weight = NO_EDGE;
+        } else {
+            addAdjacent(from, to);
+        }
+
+        addEdge(from, to, weight);
+    }
+
     /**
      * Add new vertex and return vertex index
      *
@@ -102,42 +230,194 @@ public class Graph {
     }
 
     /**
-     * Get list of adjacent
+     * Set geographic coordinates of vertex
+     *
+     * @param vertex    Vertex
+     * @param latitude  Latitude in degrees
+     * @param longitude Longitude in degrees
+     */
+    public void setCoordinates(int vertex, double latitude, double longitude) {
+        if (vertex < 0 || vertex >= totalVertex) {
+            throw new IndexOutOfBoundsException("Vertex: " + vertex + ", total: " + totalVertex);
+        }
+        if (latitudes == null || latitudes.length < totalVertex) {
+            int length = Math.max(totalVertex, latitudes == null ? 0 : latitudes.length * 2);
+            int filled = latitudes == null ? 0 : latitudes.length;
+            latitudes = latitudes == null ? new double[length] : Arrays.copyOf(latitudes, length);
+            longitudes = longitudes == null ? new double[length] : Arrays.copyOf(longitudes, length);
+            Arrays.fill(latitudes, filled, length, Double.NaN);
+            Arrays.fill(longitudes, filled, length, Double.NaN);
+        }
+        latitudes[vertex] = latitude;
+        longitudes[vertex] = longitude;
+    }
+
+    /**
+     * Graph has coordinates for at least one vertex
+     *
+     * @return
+     */
+    public boolean hasCoordinates() {
+        return latitudes != null;
+    }
+
+    /**
+     * Latitude of vertex
+     *
+     * @param vertex
+     * @return Latitude in degrees or NaN if unknown
+     */
+    public double getLatitude(int vertex) {
+        return latitudes == null || vertex >= latitudes.length ? Double.NaN : latitudes[vertex];
+    }
+
+    /**
+     * Longitude of vertex
+     *
+     * @param vertex
+     * @return Longitude in degrees or NaN if unknown
+     */
+    public double getLongitude(int vertex) {
+        return longitudes == null || vertex >= longitudes.length ? Double.NaN : longitudes[vertex];
+    }
+
+    /**
+     * Read coordinates of vertexes from source path.
+     * Each line is: vertex,latitude,longitude
+     *
+     * @param fileName
+     * @throws IOException
+     * @throws NumberFormatException
+     * @throws IndexOutOfBoundsException
+     */
+    public void readCoordinates(String fileName)
+            throws IOException, NumberFormatException, IndexOutOfBoundsException {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(fileName),
+                                                                          StandardCharsets.US_ASCII))) {
+            String line = br.readLine();
+            while (line != null && !line.isEmpty()) {
+                String[] values = line.split(",");
+                setCoordinates(Integer.parseInt(values[0].trim()),
+                               Double.parseDouble(values[1].trim()),
+                               Double.parseDouble(values[2].trim()));
+                line = br.readLine();
+            }
+        }
+    }
+
+    /**
+     * Get list of adjacent, removed vertexes are skipped
      *
      * @param vertex
      * @return
      */
     public List<Integer> getVertexAdjacent(int vertex) {
-        if (vertexAdjacent.containsKey(vertex)) {
-            return vertexAdjacent.get(vertex);
+        List<Integer> list = vertexAdjacent.get(vertex);
+        if (list == null) {
+            return new ArrayList<>();
+        }
+        if (removed.isEmpty()) {
+            return list;
         }
 
-        return new ArrayList<>();
+        List<Integer> result = new ArrayList<>(list.size());
+        for (Integer adjacent : list) {
+            if (!removed.get(adjacent)) {
+                result.add(adjacent);
+            }
+        }
+        return result;
     }
 
     /**
-     * Removes vertex
+     * Removes vertex in O(degree): the vertex and its outgoing and incoming edges are marked as removed.
+     * Indexes of other vertexes are not changed, removed vertex stays in graph without edges
+     * until compact() is called.
      *
      * @param vertex
+     * @throws IndexOutOfBoundsException for unknown vertex
      */
     public void removeVertex(int vertex) {
-        graphList.remove(vertex);
-        totalVertex--;
-        for (List<Edge> list : graphList) {
-            for (Iterator<Edge> iEdge = list.iterator(); iEdge.hasNext(); ) {
-                Edge edge = iEdge.next();
-                if (edge.to == vertex) {
-                    iEdge.remove();
-                } else if (edge.to > vertex) {
-                    edge.to--;
+        if (vertex < 0 || vertex >= totalVertex) {
+            throw new IndexOutOfBoundsException("Vertex: " + vertex + ", total: " + totalVertex);
+        }
+        if (removed.get(vertex)) {
+            return;
+        }
+
+        removed.set(vertex);
+        for (Edge edge : graphList.get(vertex)) {
+            removeEdge(edge);
+        }
+        reverse.forEach(vertex, (source, position) -> removeEdge(graphList.get(source).get(position)));
+        vertexAdjacent.remove(vertex);
+    }
+
+    private void removeEdge(Edge edge) {
+        // Loop is both outgoing and incoming edge
+        if (!edge.removed) {
+            edge.removed = true;
+            removedEdges++;
+        }
+    }
+
+    /**
+     * New indexes of vertexes after compact()
+     *
+     * @return Index for each vertex, -1 for removed vertex
+     */
+    public int[] getCompactIndexes() {
+        int[] result = new int[totalVertex];
+        int next = 0;
+        for (int v = 0; v < totalVertex; v++) {
+            result[v] = removed.get(v) ? -1 : next++;
+        }
+        return result;
+    }
+
+    /**
+     * Copy of graph without removed vertexes and their edges, O(V + E).
+     * Vertexes are renumbered as getCompactIndexes() shows.
+     * This graph is only read, so compaction can run in background while the compiled graph
+     * serves queries, if this graph is not changed meanwhile.
+     *
+     * @return New graph
+     */
+    public Graph compact() {
+        int[] indexes = getCompactIndexes();
+        Graph result = new Graph();
+        result.sparse = sparse;
+        for (int v = totalVertex - removed.cardinality(); v > 0; v--) {
+            result.addVertex();
+        }
+
+        for (int u = 0; u < totalVertex; u++) {
+            if (indexes[u] == -1) {
+                continue;
+            }
+            for (Edge edge : graphList.get(u)) {
+                if (edge.removed) {
+                    continue;
+                }
+                if (edge.weight < 0) {
+                    result.negativeEdge = true;
                 }
+                result.addEdge(indexes[u], indexes[edge.to], edge.weight);
+            }
+            for (Integer adjacent : getVertexAdjacent(u)) {
+                result.addAdjacent(indexes[u], indexes[adjacent]);
+            }
+            if (latitudes != null) {
+                result.setCoordinates(indexes[u], getLatitude(u), getLongitude(u));
             }
         }
+        result.reverse.merge();
+        return result;
     }
 
-
     /**
-     * List of edges of current vertex
+     * List of edges of current vertex.
+     * Edges of removed vertexes stay in the list until compact(), see Edge.isRemoved()
      *
      * @param vertex
      * @return List of edges
@@ -146,6 +426,58 @@ public class Graph {
         return graphList.get(vertex);
     }
 
+    /**
+     * Compile graph into immutable CSR form.
+     * Later changes of this graph are not visible in the result.
+     * Removed vertexes stay in the result without edges, so indexes of vertexes are the same.
+     *
+     * @return Graph in CSR form
+     */
+    public CsrGraph compile() {
+        int[] offsets = new int[totalVertex + 1];
+        for (int u = 0; u < totalVertex; u++) {
+            int count = graphList.get(u).size();
+            if (removedEdges > 0) {
+                for (Edge edge : graphList.get(u)) {
+                    if (edge.removed) {
+                        count--;
+                    }
+                }
+            }
+            offsets[u + 1] = offsets[u] + count;
+        }
+
+        int[] targets = new int[offsets[totalVertex]];
+        double[] weights = new double[offsets[totalVertex]];
+        boolean negative = false;
+        for (int u = 0; u < totalVertex; u++) {
+            int e = offsets[u];
+            for (Edge edge : graphList.get(u)) {
+                if (edge.removed) {
+                    continue;
+                }
+                targets[e] = edge.to;
+                weights[e] = edge.weight;
+                if (edge.weight < 0) {
+                    negative = true;
+                }
+                e++;
+            }
+        }
+
+        CsrGraph result = new CsrGraph(offsets, targets, weights, negative);
+        if (latitudes != null) {
+            double[] lat = new double[totalVertex];
+            double[] lon = new double[totalVertex];
+            for (int u = 0; u < totalVertex; u++) {
+                lat[u] = getLatitude(u);
+                lon[u] = getLongitude(u);
+            }
+            result = result.withCoordinates(lat, lon);
+        }
+        return result;
+    }
+
     /**
      * Read matrix from source path
      *
@@ -157,8 +489,24 @@ public class Graph {
     public static Graph fromMatrix(String fileName)
             throws IOException, NumberFormatException, IndexOutOfBoundsException {
 
+        return fromMatrix(fileName, false);
+    }
+
+    /**
+     * Read matrix from source path
+     *
+     * @param fileName
+     * @param sparse   Do not store missing edges
+     * @throws IOException
+     * @throws NumberFormatException
+     * @throws IndexOutOfBoundsException
+     */
+    public static Graph fromMatrix(String fileName, boolean sparse)
+            throws IOException, NumberFormatException, IndexOutOfBoundsException {
+
         int i = 0;
         Graph graph = new Graph();
+        graph.sparse = sparse;
 
         try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(fileName),
                                                                           StandardCharsets.US_ASCII))) {
@@ -171,17 +519,7 @@ public class Graph {
 
                 graph.addVertex(i);
                 for (int j = 0; j < len; j++) {
-                    Double edge = Double.valueOf(values[j].trim());
-
-                    if (edge.doubleValue() < 0) {
-                        graph.negativeEdge = true;
-                    } else if (edge.doubleValue() == 0) {
-                        edge = Double.MAX_VALUE;
-                    } else {
-                        graph.addAdjacent(i, j);
-                    }
-
-                    graph.addEdge(i, j, edge);
+                    graph.addInputEdge(i, j, Double.parseDouble(values[j].trim()));
                 }
                 line = br.readLine();
                 i++;
@@ -203,8 +541,22 @@ public class Graph {
         StringBuilder str = new StringBuilder();
 
         for (int u = 0; u < totalVertex; ++u) {
+            if (sparse) {
+                // Missing cells are restored as zeros
+                double[] row = new double[totalVertex];
+                for (Edge to : getListEdge(u)) {
+                    if (!to.removed) {
+                        row[to.to] = to.weight;
+                    }
+                }
+                for (double weight : row) {
+                    str.append(weight == 0 ? String.valueOf(0) : String.valueOf(weight)).append(",");
+                }
+                str.append(System.lineSeparator());
+                continue;
+            }
             for (Edge to : getListEdge(u)) {
-                if (to.weight < Integer.MAX_VALUE) {
+                if (to.weight < Integer.MAX_VALUE && !to.removed) {
                     str.append(String.valueOf(to.weight)).append(",");
                 } else {
                     str.append(String.valueOf(0)).append(",");
@@ -226,7 +578,23 @@ public class Graph {
      */
     public static Graph fromList(String fileName)
             throws IOException, NumberFormatException, IndexOutOfBoundsException {
+
+        return fromList(fileName, false);
+    }
+
+    /**
+     * Read list of vertexes from source path
+     *
+     * @param fileName
+     * @param sparse   Do not store edges with zero weight
+     * @throws IOException
+     * @throws NumberFormatException
+     * @throws IndexOutOfBoundsException
+     */
+    public static Graph fromList(String fileName, boolean sparse)
+            throws IOException, NumberFormatException, IndexOutOfBoundsException {
         Graph graph = new Graph();
+        graph.sparse = sparse;
         Pattern p = Pattern.compile("^([A-Z]{2})(\\-*[0-9]+)$");
 
         try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(fileName),
@@ -246,17 +614,7 @@ public class Graph {
                     graph.addVertex(v1);
                     graph.addVertex(v2);
 
-                    Double edge = Double.valueOf(m.group(2));
-
-                    if (edge.doubleValue() < 0) {
-                        graph.negativeEdge = true;
-                    } else if (edge.doubleValue() == 0) {
-                        edge = Double.MAX_VALUE;
-                    } else {
-                        graph.addAdjacent(v1, v2);
-                    }
-
-                    graph.addEdge(v1, v2, edge);
+                    graph.addInputEdge(v1, v2, Double.parseDouble(m.group(2)));
                 }
                 line = br.readLine();
             }
@@ -267,6 +625,47 @@ public class Graph {
         return graph;
     }
 
+    /**
+     * Read list of edges between named stations from source path.
+     * Each line is: from,to,weight. Names may be any text without commas,
+     * vertexes get indexes of stations in the given index.
+     *
+     * @param fileName
+     * @param sparse   Do not store edges with zero weight
+     * @param stations Index of station names, new names are added to it
+     * @throws IOException
+     * @throws NumberFormatException
+     */
+    public static Graph fromStations(String fileName, boolean sparse, StationIndex stations)
+            throws IOException, NumberFormatException {
+        Graph graph = new Graph();
+        graph.sparse = sparse;
+
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(fileName),
+                                                                          StandardCharsets.UTF_8))) {
+            String line = br.readLine();
+            while (line != null && !line.isEmpty()) {
+                String[] values = line.split(",");
+                if (values.length != 3) {
+                    throw new NumberFormatException("Invalid edge: " + line);
+                }
+                int v1 = stations.intern(values[0].trim());
+                int v2 = stations.intern(values[1].trim());
+                while (graph.getCount() < stations.size()) {
+                    graph.addVertex();
+                }
+
+                graph.addInputEdge(v1, v2, Double.parseDouble(values[2].trim()));
+                line = br.readLine();
+            }
+        } catch (IllegalArgumentException exp) {
+            // Empty station name
+            throw new NumberFormatException(exp.getMessage());
+        }
+
+        return graph;
+    }
+
     /**
      * Read list of vertexes from string matrix
      *
@@ -276,8 +675,23 @@ public class Graph {
      */
     public static Graph fromString(String matrix)
             throws NumberFormatException, IndexOutOfBoundsException {
+
+        return fromString(matrix, false);
+    }
+
+    /**
+     * Read list of vertexes from string matrix
+     *
+     * @param matrix
+     * @param sparse Do not store missing edges
+     * @throws NumberFormatException
+     * @throws IndexOutOfBoundsException
+     */
+    public static Graph fromString(String matrix, boolean sparse)
+            throws NumberFormatException, IndexOutOfBoundsException {
         int i = 0;
         Graph graph = new Graph();
+        graph.sparse = sparse;
 
         try {
             String[] lines = matrix.split("\n");
@@ -290,17 +704,7 @@ public class Graph {
 
                 graph.addVertex(i);
                 for (int j = 0; j < len; j++) {
-                    Double edge = Double.valueOf(values[j].trim());
-
-                    if (edge.doubleValue() < 0) {
-                        graph.negativeEdge = true;
-                    } else if (edge.doubleValue() == 0) {
-                        edge = Double.MAX_VALUE;
-                    } else {
-                        graph.addAdjacent(i, j);
-                    }
-
-                    graph.addEdge(i, j, edge);
+                    graph.addInputEdge(i, j, Double.parseDouble(values[j].trim()));
                 }
                 i++;
             }
@@ -0,0 +1,596 @@
+package ws.skif.graph.models;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Fast loader of matrix and list files.
+ * File is memory-mapped by windows, numbers are parsed directly from bytes,
+ * edges are collected in primitive arrays and placed to compiled graph by counting sort.
+ * Result is the same as Graph.fromMatrix() or Graph.fromList() followed by compile().
+ * In list files vertexes may appear in any order, names of stations are interned to StationIndex.
+ * List files can be parsed by several threads: file is split to chunks at separators,
+ * each chunk is parsed to its own edge buffer, buffers are merged in file order.
+ * Instance is not thread-safe, statistics are kept for the last loaded file.
+ */
+public class MappedGraphReader {
+
+    private static final long WINDOW = 1L << 30;        // Maximum size of mapped window
+    private static final long MAX_EXACT = 1L << 53;     // Bigger integers are not exact in double
+    private static final double[] POWERS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final long MIN_CHUNK = 1L << 16;     // Smaller files are parsed by one thread
+
+    private boolean sparse;                 // Do not store edges with zero weight
+    private boolean list;                   // File is list of edges
+    private StationIndex stations;          // Index of station names for list of named stations, else null
+
+    private long bytes;                     // Size of last file
+    private long nanos;                     // Time of last load
+
+    /**
+     * Read matrix from file
+     *
+     * @param fileName
+     * @param sparse   Do not store edges with zero weight
+     * @return Compiled graph
+     * @throws IOException
+     * @throws NumberFormatException
+     */
+    public CsrGraph readMatrix(String fileName, boolean sparse) throws IOException {
+        return read(fileName, sparse, false);
+    }
+
+    /**
+     * Read list of edges from file
+     *
+     * @param fileName
+     * @param sparse   Do not store edges with zero weight
+     * @return Compiled graph
+     * @throws IOException
+     * @throws NumberFormatException
+     */
+    public CsrGraph readList(String fileName, boolean sparse) throws IOException {
+        return read(fileName, sparse, true);
+    }
+
+    /**
+     * Read list of edges between named stations from file.
+     * Each line is: from,to,weight. Names are interned from mapped bytes,
+     * vertexes get indexes of stations in the given index.
+     *
+     * @param fileName
+     * @param sparse   Do not store edges with zero weight
+     * @param stations Index of station names, new names are added to it
+     * @return Compiled graph
+     * @throws IOException
+     * @throws NumberFormatException
+     */
+    public CsrGraph readStations(String fileName, boolean sparse, StationIndex stations) throws IOException {
+        this.stations = stations;
+        try {
+            return read(fileName, sparse, true);
+        } finally {
+            this.stations = null;
+        }
+    }
+
+    /**
+     * Read list of edges from file by several threads
+     *
+     * @param fileName
+     * @param sparse   Do not store edges with zero weight
+     * @param executor Executor for chunks of file, null to read in current thread. Executor is not shut down
+     * @return Compiled graph
+     * @throws IOException
+     * @throws NumberFormatException
+     */
+    public CsrGraph readList(String fileName, boolean sparse, ExecutorService executor) throws IOException {
+        if (executor == null) {
+            return readList(fileName, sparse);
+        }
+        long start = System.nanoTime();
+        this.sparse = sparse;
+        this.list = true;
+
+        List<EdgeBuffer> buffers = new ArrayList<>();
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel()) {
+            bytes = channel.size();
+            int parallelism = executor instanceof ForkJoinPool
+                    ? ((ForkJoinPool) executor).getParallelism()
+                    : Runtime.getRuntime().availableProcessors();
+            long chunk = Math.min(WINDOW, Math.max(MIN_CHUNK, bytes / (parallelism * 4L)));
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            long position = 0;
+            while (position < bytes) {
+                final long from = position;
+                final long to = position + chunk < bytes ? nextSeparator(channel, position + chunk) : bytes;
+                final EdgeBuffer buffer = new EdgeBuffer();
+                buffers.add(buffer);
+                tasks.add(() -> {
+                    parseChunk(channel, from, to, buffer);
+                    return null;
+                });
+                position = to;
+            }
+            invokeAll(executor, tasks);
+        }
+
+        // Chunks after the first empty line are ignored, like the rest of file in sequential mode
+        List<EdgeBuffer> used = new ArrayList<>();
+        for (EdgeBuffer buffer : buffers) {
+            if (buffer.error != null) {
+                throw buffer.error;
+            }
+            used.add(buffer);
+            if (buffer.finished) {
+                break;
+            }
+        }
+
+        CsrGraph result = build(used);
+        nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Size of last loaded file
+     *
+     * @return Bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Time of last load
+     *
+     * @return ms
+     */
+    public long getMillis() {
+        return nanos / 1_000_000;
+    }
+
+    /**
+     * Speed of last load
+     *
+     * @return MB per second
+     */
+    public double getThroughput() {
+        return nanos == 0 ? 0 : bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    private CsrGraph read(String fileName, boolean sparse, boolean list) throws IOException {
+        long start = System.nanoTime();
+        this.sparse = sparse;
+        this.list = list;
+        EdgeBuffer edges = new EdgeBuffer();
+
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel()) {
+            bytes = channel.size();
+            long position = 0;
+            while (position < bytes && !edges.finished) {
+                long size = Math.min(WINDOW, bytes - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                int limit = (int) size;
+                if (position + size < bytes) {
+                    // Window ends after the last full line, the rest goes to the next window
+                    limit = lastLineEnd(buffer, limit);
+                }
+                parse(buffer, 0, limit, true, edges);
+                position += limit;
+            }
+        }
+
+        CsrGraph result = build(Arrays.asList(edges));
+        nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Parse one chunk of list file
+     *
+     * @param channel File
+     * @param from    Start of chunk, just after separator
+     * @param to      End of chunk
+     * @param edges   Edges of chunk
+     */
+    private void parseChunk(FileChannel channel, long from, long to, EdgeBuffer edges) throws IOException {
+        boolean lineStart = from == 0 || byteAt(channel, from - 1) == '\n';
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        try {
+            parse(buffer, 0, (int) (to - from), lineStart, edges);
+        } catch (NumberFormatException exp) {
+            // Error is reported only if chunk is before the end of data
+            edges.error = exp;
+        }
+    }
+
+    /**
+     * Position just after the first separator (comma or end of line) at or after given position
+     *
+     * @param channel  File
+     * @param position Start of search
+     * @return Position of chunk end
+     * @throws IOException
+     */
+    private static long nextSeparator(FileChannel channel, long position) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(4096);
+        long size = channel.size();
+        while (position < size) {
+            // Buffer method, ByteBuffer override of JDK 9+ is missing on Java 8
+            ((Buffer) block).clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte c = block.get(i);
+                if (c == ',' || c == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(1);
+        channel.read(block, position);
+        return block.get(0);
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static int lastLineEnd(MappedByteBuffer buffer, int limit) throws IOException {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        throw new IOException("Line is longer than " + WINDOW + " bytes");
+    }
+
+    /**
+     * Parse lines of window or chunk
+     *
+     * @param buffer    Window of file
+     * @param position  Start of data
+     * @param limit     End of data
+     * @param lineStart Data starts from the beginning of line, otherwise from the middle of list line
+     * @param edges     Collected edges
+     */
+    private void parse(MappedByteBuffer buffer, int position, int limit, boolean lineStart, EdgeBuffer edges) {
+        while (position < limit && !edges.finished) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int end = lineEnd;
+            if (end > position && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+
+            if (end == position && lineStart) {
+                // Loading stops on the first empty line
+                edges.finished = true;
+                break;
+            }
+            if (stations != null) {
+                parseStationLine(buffer, position, end, edges);
+            } else if (list) {
+                parseListLine(buffer, position, end, edges);
+            } else {
+                parseMatrixLine(buffer, position, end, edges);
+            }
+            position = lineEnd + 1;
+            lineStart = true;
+        }
+    }
+
+    /**
+     * Row of matrix: weights separated by commas
+     */
+    private void parseMatrixLine(MappedByteBuffer buffer, int start, int end, EdgeBuffer edges) {
+        int row = edges.rows++;
+        edges.totalVertex = Math.max(edges.totalVertex, edges.rows);
+
+        // Empty values at the end of line are ignored, the last one may be blank
+        while (end > start && buffer.get(end - 1) == ',') {
+            end--;
+        }
+        int lastStart = end;
+        while (lastStart > start && buffer.get(lastStart - 1) != ',') {
+            lastStart--;
+        }
+        if (isBlank(buffer, lastStart, end)) {
+            if (lastStart == start) {
+                return;
+            }
+            end = lastStart - 1;
+        }
+
+        int column = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == ',') {
+                edges.add(row, column++, parseNumber(buffer, fieldStart, i), sparse);
+                fieldStart = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Line of list: edges like AB5 separated by commas
+     */
+    private void parseListLine(MappedByteBuffer buffer, int start, int end, EdgeBuffer edges) {
+        while (end > start && buffer.get(end - 1) == ',') {
+            end--;
+        }
+        if (end == start) {
+            return;
+        }
+
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == ',') {
+                int a = fieldStart;
+                int b = i;
+                while (a < b && isSpace(buffer.get(a))) {
+                    a++;
+                }
+                while (b > a && isSpace(buffer.get(b - 1))) {
+                    b--;
+                }
+                if (b - a < 3) {
+                    throw new NumberFormatException("Invalid edge: " + text(buffer, fieldStart, i));
+                }
+                int from = letter(buffer, a, fieldStart, i);
+                int to = letter(buffer, a + 1, fieldStart, i);
+                edges.totalVertex = Math.max(edges.totalVertex, Math.max(from, to) + 1);
+                edges.add(from, to, parseNumber(buffer, a + 2, b), sparse);
+                fieldStart = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Line of named stations: from,to,weight
+     */
+    private void parseStationLine(MappedByteBuffer buffer, int start, int end, EdgeBuffer edges) {
+        int first = -1;
+        int second = -1;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == ',') {
+                if (first == -1) {
+                    first = i;
+                } else if (second == -1) {
+                    second = i;
+                } else {
+                    second = -1;
+                    break;
+                }
+            }
+        }
+        if (second == -1) {
+            throw new NumberFormatException("Invalid edge: " + text(buffer, start, end));
+        }
+
+        int from = station(buffer, start, first);
+        int to = station(buffer, first + 1, second);
+        edges.totalVertex = stations.size();
+        edges.add(from, to, parseNumber(buffer, second + 1, end), sparse);
+    }
+
+    private int station(MappedByteBuffer buffer, int start, int end) {
+        while (start < end && isSpace(buffer.get(start))) {
+            start++;
+        }
+        while (end > start && isSpace(buffer.get(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            throw new NumberFormatException("Empty station name");
+        }
+        return stations.intern(buffer, start, end);
+    }
+
+    private static int letter(MappedByteBuffer buffer, int position, int fieldStart, int fieldEnd) {
+        int c = Character.toUpperCase(buffer.get(position));
+        if (c < 'A' || c > 'Z') {
+            throw new NumberFormatException("Invalid edge: " + text(buffer, fieldStart, fieldEnd));
+        }
+        return c - 'A';
+    }
+
+    /**
+     * Place edges by source vertex, order of buffers and of edges in each buffer is kept
+     *
+     * @param buffers Edges in file order
+     * @return Compiled graph
+     */
+    private static CsrGraph build(List<EdgeBuffer> buffers) {
+        int totalVertex = 0;
+        int edgeCount = 0;
+        for (EdgeBuffer buffer : buffers) {
+            totalVertex = Math.max(totalVertex, buffer.totalVertex);
+            edgeCount += buffer.count;
+        }
+
+        int[] offsets = new int[totalVertex + 1];
+        for (EdgeBuffer buffer : buffers) {
+            for (int e = 0; e < buffer.count; e++) {
+                offsets[buffer.sources[e] + 1]++;
+            }
+        }
+        for (int v = 0; v < totalVertex; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] fill = Arrays.copyOf(offsets, totalVertex);
+        int[] newTargets = new int[edgeCount];
+        double[] newWeights = new double[edgeCount];
+        boolean negative = false;
+        for (EdgeBuffer buffer : buffers) {
+            for (int e = 0; e < buffer.count; e++) {
+                int position = fill[buffer.sources[e]]++;
+                newTargets[position] = buffer.targets[e];
+                newWeights[position] = buffer.weights[e];
+                negative |= buffer.weights[e] < 0;
+            }
+        }
+
+        return new CsrGraph(offsets, newTargets, newWeights, negative);
+    }
+
+    /**
+     * Parse number without creating String.
+     * Simple decimals are computed exactly as Double.parseDouble does,
+     * other forms fall back to it.
+     *
+     * @param buffer Window of file
+     * @param start  Start of number
+     * @param end    End of number
+     * @return Number
+     */
+    static double parseNumber(MappedByteBuffer buffer, int start, int end) {
+        int a = start;
+        int b = end;
+        while (a < b && isSpace(buffer.get(a))) {
+            a++;
+        }
+        while (b > a && isSpace(buffer.get(b - 1))) {
+            b--;
+        }
+
+        int i = a;
+        boolean negative = false;
+        if (i < b && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean digits = false;
+        for (; i < b; i++) {
+            byte c = buffer.get(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits = true;
+                if (dot) {
+                    scale++;
+                }
+                if (mantissa >= MAX_EXACT || scale >= POWERS.length) {
+                    return slowNumber(buffer, a, b);
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return slowNumber(buffer, a, b);
+            }
+        }
+        if (!digits) {
+            return slowNumber(buffer, a, b);
+        }
+
+        // Both values are exact, so the division is rounded correctly
+        double value = scale == 0 ? mantissa : mantissa / POWERS[scale];
+        return negative ? -value : value;
+    }
+
+    private static double slowNumber(MappedByteBuffer buffer, int start, int end) {
+        return Double.parseDouble(text(buffer, start, end));
+    }
+
+    private static String text(MappedByteBuffer buffer, int start, int end) {
+        byte[] data = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            data[i - start] = buffer.get(i);
+        }
+        return new String(data, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isBlank(MappedByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isSpace(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Edges collected from file or from one chunk of file
+     */
+    private static class EdgeBuffer {
+        private int count;                          // Collected edges
+        private int[] sources = new int[1024];
+        private int[] targets = new int[1024];
+        private double[] weights = new double[1024];
+        private int rows;                           // Rows of matrix
+        private int totalVertex;                    // Number of vertexes
+        private boolean finished;                   // Empty line is found, the rest of file is ignored
+        private NumberFormatException error;        // Invalid data of chunk
+
+        /**
+         * Edge of source file, with the same rules as in Graph
+         */
+        private void add(int from, int to, double weight, boolean sparse) {
+            if (weight == 0) {
+                if (sparse) {
+                    return;
+                }
+                weight = Graph.NO_EDGE;
+            }
+
+            if (count == sources.length) {
+                sources = Arrays.copyOf(sources, count * 2);
+                targets = Arrays.copyOf(targets, count * 2);
+                weights = Arrays.copyOf(weights, count * 2);
+            }
+            sources[count] = from;
+            targets[count] = to;
+            weights[count] = weight;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ws.skif.graph.models;
+
+import java.util.Arrays;
+
+/**
+ * Incoming edges of Graph in CSR form: for each vertex the source vertexes of edges into it
+ * and positions of these edges in the lists of source vertexes.
+ * Edges added after the last merge are kept in linked lists per target vertex
+ * and are merged into CSR arrays when there are many of them,
+ * so adding is O(1) amortized and visiting edges of vertex is O(in-degree).
+ */
+final class ReverseAdjacency {
+
+    /**
+     * Visitor of incoming edges
+     */
+    interface Visitor {
+        /**
+         * @param source   Source vertex of edge
+         * @param position Index of edge in the list of source vertex
+         */
+        void visit(int source, int position);
+    }
+
+    private static final int MIN_PENDING = 1024;    // Added edges are not merged before this number
+
+    private int[] offsets = new int[1];             // Start of edges into each vertex, merged vertexes + 1 used
+    private int[] sources = new int[0];             // Source vertex of each merged edge
+    private int[] positions = new int[0];           // Index of each merged edge in the list of source vertex
+
+    private int[] pendingHead = new int[0];         // Last added edge into each vertex, -1 if none
+    private int[] pendingNext = new int[16];        // Previous added edge into the same vertex, -1 if none
+    private int[] pendingTarget = new int[16];      // Target vertex of added edge
+    private int[] pendingSource = new int[16];      // Source vertex of added edge
+    private int[] pendingPosition = new int[16];    // Index of added edge in the list of source vertex
+    private int pendingSize;                        // Number of added edges
+
+    /**
+     * Add edge
+     *
+     * @param source   Source vertex
+     * @param position Index of edge in the list of source vertex
+     * @param target   Target vertex
+     */
+    void add(int source, int position, int target) {
+        if (target >= pendingHead.length) {
+            int length = pendingHead.length;
+            pendingHead = Arrays.copyOf(pendingHead, Math.max(target + 1, length * 2));
+            Arrays.fill(pendingHead, length, pendingHead.length, -1);
+        }
+        if (pendingSize == pendingSource.length) {
+            int length = pendingSize * 2;
+            pendingNext = Arrays.copyOf(pendingNext, length);
+            pendingTarget = Arrays.copyOf(pendingTarget, length);
+            pendingSource = Arrays.copyOf(pendingSource, length);
+            pendingPosition = Arrays.copyOf(pendingPosition, length);
+        }
+
+        pendingNext[pendingSize] = pendingHead[target];
+        pendingTarget[pendingSize] = target;
+        pendingSource[pendingSize] = source;
+        pendingPosition[pendingSize] = position;
+        pendingHead[target] = pendingSize++;
+
+        // Merge when added edges are a quarter of merged ones: each edge is copied O(1) times on average
+        if (pendingSize >= MIN_PENDING && pendingSize > sources.length / 4) {
+            merge();
+        }
+    }
+
+    /**
+     * Number of edges into vertex, including removed edges
+     *
+     * @param vertex
+     * @return
+     */
+    int degree(int vertex) {
+        int count = vertex + 1 < offsets.length ? offsets[vertex + 1] - offsets[vertex] : 0;
+        for (int i = head(vertex); i != -1; i = pendingNext[i]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Visit edges into vertex: merged edges in the order of adding, then added edges from the last one
+     *
+     * @param vertex
+     * @param visitor
+     */
+    void forEach(int vertex, Visitor visitor) {
+        if (vertex + 1 < offsets.length) {
+            for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+                visitor.visit(sources[i], positions[i]);
+            }
+        }
+        for (int i = head(vertex); i != -1; i = pendingNext[i]) {
+            visitor.visit(pendingSource[i], pendingPosition[i]);
+        }
+    }
+
+    /**
+     * Move added edges into CSR arrays with counting sort by target vertex, O(V + E)
+     */
+    void merge() {
+        if (pendingSize == 0) {
+            return;
+        }
+
+        int count = Math.max(offsets.length - 1, pendingHead.length);
+        int[] newOffsets = new int[count + 1];
+        for (int v = 0; v < offsets.length - 1; v++) {
+            newOffsets[v + 1] = offsets[v + 1] - offsets[v];
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            newOffsets[pendingTarget[i] + 1]++;
+        }
+        for (int v = 0; v < count; v++) {
+            newOffsets[v + 1] += newOffsets[v];
+        }
+
+        int[] newSources = new int[newOffsets[count]];
+        int[] newPositions = new int[newOffsets[count]];
+        int[] next = Arrays.copyOf(newOffsets, count);
+        for (int v = 0; v < offsets.length - 1; v++) {
+            int length = offsets[v + 1] - offsets[v];
+            System.arraycopy(sources, offsets[v], newSources, next[v], length);
+            System.arraycopy(positions, offsets[v], newPositions, next[v], length);
+            next[v] += length;
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            int e = next[pendingTarget[i]]++;
+            newSources[e] = pendingSource[i];
+            newPositions[e] = pendingPosition[i];
+        }
+
+        offsets = newOffsets;
+        sources = newSources;
+        positions = newPositions;
+        Arrays.fill(pendingHead, -1);
+        pendingSize = 0;
+        // Added edges take twice more memory than merged ones, so their arrays are released
+        pendingNext = new int[16];
+        pendingTarget = new int[16];
+        pendingSource = new int[16];
+        pendingPosition = new int[16];
+    }
+
+    /**
+     * Memory used by index
+     *
+     * @return Bytes
+     */
+    long getMemory() {
+        return 4L * (offsets.length + sources.length + positions.length + pendingHead.length)
+                + 16L * pendingSource.length;
+    }
+
+    private int head(int vertex) {
+        return vertex < pendingHead.length ? pendingHead[vertex] : -1;
+    }
+}
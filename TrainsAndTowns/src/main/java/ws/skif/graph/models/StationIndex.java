@@ -0,0 +1,262 @@
+package ws.skif.graph.models;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Symbol table of station names: name to dense vertex index and back.
+ * Names are kept as UTF-8 bytes in one arena, the hash table is open addressing
+ * with linear probing over array of longs, so no String or other object is kept per name.
+ * Index of station is the order of first appearance: 0, 1, 2, ...
+ * Instance is not thread-safe for interning, lookups may run in parallel after loading is done.
+ */
+public class StationIndex {
+
+    private static final int FNV_OFFSET = 0x811C9DC5;  // FNV-1a hash
+    private static final int FNV_PRIME = 0x01000193;
+
+    private byte[] arena = new byte[1024];          // Names of all stations one after another
+    private int arenaSize;                          // Used bytes of arena
+    private int[] starts = new int[65];             // Start of name of each station in arena, size + 1 used
+    private long[] table = new long[128];           // Hash of name << 32 | station index + 1, 0 for empty slot
+    private int size;                               // Number of stations
+
+    /**
+     * Number of stations
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Memory used by names and hash table
+     *
+     * @return Bytes
+     */
+    public long getMemory() {
+        return arena.length + 4L * starts.length + 8L * table.length;
+    }
+
+    /**
+     * Index of station, new station is added if it is not found
+     *
+     * @param name
+     * @return Index of station
+     * @throws IllegalArgumentException for empty name
+     */
+    public int intern(CharSequence name) {
+        int station = find(name);
+        if (station != -1) {
+            return station;
+        }
+        byte[] data = bytes(name);
+        return intern(ByteBuffer.wrap(data), 0, data.length);
+    }
+
+    /**
+     * Index of station by name encoded in UTF-8, new station is added if it is not found.
+     * Bytes are copied to arena, buffer is not kept.
+     *
+     * @param buffer Buffer with name
+     * @param start  Start of name
+     * @param end    End of name
+     * @return Index of station
+     * @throws IllegalArgumentException for empty name
+     */
+    public int intern(ByteBuffer buffer, int start, int end) {
+        if (end <= start) {
+            throw new IllegalArgumentException("Empty station name");
+        }
+        int hash = hash(buffer, start, end);
+        int slot = findSlot(buffer, start, end, hash);
+        if (table[slot] != 0) {
+            return station(table[slot]);
+        }
+
+        int station = add(buffer, start, end);
+        table[slot] = entry(hash, station);
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return station;
+    }
+
+    /**
+     * Index of station
+     *
+     * @param name
+     * @return Index of station or -1 if it is unknown
+     */
+    public int find(CharSequence name) {
+        // ASCII names are compared char by char, without encoding
+        int hash = FNV_OFFSET;
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                byte[] data = bytes(name);
+                return find(ByteBuffer.wrap(data), 0, data.length);
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+        }
+        hash ^= hash >>> 16;
+
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            if ((int) (table[slot] >>> 32) == hash && equalsName(station(table[slot]), name)) {
+                return station(table[slot]);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Index of station by name encoded in UTF-8
+     *
+     * @param buffer Buffer with name
+     * @param start  Start of name
+     * @param end    End of name
+     * @return Index of station or -1 if it is unknown
+     */
+    public int find(ByteBuffer buffer, int start, int end) {
+        int slot = findSlot(buffer, start, end, hash(buffer, start, end));
+        return station(table[slot]);
+    }
+
+    /**
+     * Name of station, String is created on each call
+     *
+     * @param station Index of station
+     * @return
+     * @throws IndexOutOfBoundsException for unknown index
+     */
+    public String getName(int station) {
+        if (station < 0 || station >= size) {
+            throw new IndexOutOfBoundsException("Station: " + station + ", total: " + size);
+        }
+        return new String(arena, starts[station], starts[station + 1] - starts[station], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Names of all stations in UTF-8 one after another, in the order of indexes
+     *
+     * @return Copy of names
+     */
+    public byte[] getNames() {
+        return Arrays.copyOf(arena, arenaSize);
+    }
+
+    /**
+     * Start of name of each station in getNames(), the last value is the end of names
+     *
+     * @return Copy of starts, size + 1 values
+     */
+    public int[] getStarts() {
+        return Arrays.copyOf(starts, size + 1);
+    }
+
+    /**
+     * Slot of name in hash table: slot with the same name or the first empty slot
+     */
+    private int findSlot(ByteBuffer buffer, int start, int end, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            if ((int) (table[slot] >>> 32) == hash && equalsName(station(table[slot]), buffer, start, end)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean equalsName(int station, ByteBuffer buffer, int start, int end) {
+        int from = starts[station];
+        if (starts[station + 1] - from != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (arena[from++] != buffer.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equalsName(int station, CharSequence name) {
+        int from = starts[station];
+        if (starts[station + 1] - from != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (arena[from++] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+        }
+        for (int i = start; i < end; i++) {
+            arena[arenaSize++] = buffer.get(i);
+        }
+
+        if (size + 1 == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2 + 1);
+        }
+        starts[size + 1] = arenaSize;
+        return size++;
+    }
+
+    /**
+     * Double the hash table, stored hashes are used, names are not read again
+     */
+    private void rehash() {
+        long[] newTable = new long[table.length * 2];
+        int mask = newTable.length - 1;
+        for (long entry : table) {
+            if (entry == 0) {
+                continue;
+            }
+            int slot = (int) (entry >>> 32) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = entry;
+        }
+        table = newTable;
+    }
+
+    /**
+     * Slot of hash table keeps hash to skip most of name comparisons
+     */
+    private static long entry(int hash, int station) {
+        return ((long) hash << 32) | (station + 1);
+    }
+
+    private static int station(long entry) {
+        return (int) entry - 1;
+    }
+
+    private static int hash(ByteBuffer buffer, int start, int end) {
+        int hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xFF)) * FNV_PRIME;
+        }
+        // Mix high bits into low ones, table uses the low bits only
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte[] bytes(CharSequence name) {
+        return name.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
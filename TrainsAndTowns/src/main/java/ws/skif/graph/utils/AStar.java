@@ -0,0 +1,108 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.LinkedList;
+
+/**
+ * A* algo for minimal path between 2 vertexes.
+ * Vertexes are taken from heap by distance plus estimate of remaining distance,
+ * so search goes towards the target. Edges must be non negative.
+ * Instance is not thread-safe, but instances for the same graph can be used in different threads.
+ */
+public class AStar {
+
+    private final CsrGraph graph;               // Graph for which calculations are performed
+    private final Heuristic heuristic;          // Lower bound of remaining distance
+    private final int totalVertex;              // Total number of vertexes in graph
+
+    private int settledCount;                   // Number of settled vertexes in last query
+
+    public AStar(Graph g, Heuristic heuristic) {
+        this(g.compile(), heuristic);
+    }
+
+    public AStar(CsrGraph g, Heuristic heuristic) {
+        if (g.isNegativeEdge()) {
+            throw new IllegalArgumentException("A* requires graph without negative edges");
+        }
+        graph = g;
+        this.heuristic = heuristic;
+        totalVertex = g.getCount();
+    }
+
+    /**
+     * Number of vertexes settled in last query
+     *
+     * @return
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Minimal distance between 2 vertexes
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @return Distance or POSITIVE_INFINITY if there is no path
+     */
+    public double distance(int sourceVertex, int targetVertex) {
+        return search(sourceVertex, targetVertex).distance(targetVertex);
+    }
+
+    /**
+     * Constructs the path of the minimum length between the given two vertexes
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @return List of vertexes from the source to target vertex.
+     * Only the target vertex, if there is no path
+     */
+    public LinkedList<Integer> getPath(int sourceVertex, int targetVertex) {
+        DijkstraWorkspace workspace = search(sourceVertex, targetVertex);
+        LinkedList<Integer> path = new LinkedList<>();
+        for (int v = targetVertex; v != -1; v = workspace.previous(v)) {
+            path.addFirst(v);
+        }
+        return path;
+    }
+
+    /**
+     * A* search. Result is kept in workspace of current thread
+     * and is valid until next run in this thread.
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @return Workspace with distances and tree of settled vertexes
+     */
+    public DijkstraWorkspace search(int sourceVertex, int targetVertex) {
+        DijkstraWorkspace workspace = DijkstraWorkspace.forThread(totalVertex);
+
+        workspace.addSource(sourceVertex, 0, heuristic.estimate(sourceVertex, targetVertex));
+        settledCount = 0;
+
+        while (!workspace.isEmpty()) {
+            int currentVertex = workspace.extractMin();
+            settledCount++;
+            if (currentVertex == targetVertex) {
+                break;
+            }
+            double currentDistance = workspace.distance(currentVertex);
+
+            int[] targets = graph.getTargets(currentVertex);
+            double[] weights = graph.getWeights(currentVertex);
+            int last = graph.edgeEnd(currentVertex);
+            for (int e = graph.edgeStart(currentVertex); e < last; e++) {
+                int end = targets[e];
+                double newDist = currentDistance + weights[e];
+                if (newDist < workspace.distance(end)) {
+                    workspace.relax(currentVertex, end, newDist, newDist + heuristic.estimate(end, targetVertex));
+                }
+            }
+        }
+
+        return workspace;
+    }
+}
@@ -1,25 +1,37 @@
 package ws.skif.graph.utils;
 
-import ws.skif.graph.models.Edge;
+import ws.skif.graph.models.CsrGraph;
 import ws.skif.graph.models.Graph;
 
 import java.util.*;
 
 public class BellmanFord {
-    private final Graph graph;
+    private final CsrGraph graph;
 
     private int src = -1;                   // Source vertex
     private int totalVertex;                // Total number of vertexes in graph
 
     private double[] distances;             // Graph distances
     private int[] tree;                     // Min path tree
+    private List<Integer> negativeCycle;    // Cycle with negative length, found by last run
+
+    private final int[] queue;              // Queue of vertexes with changed distance
+    private final boolean[] inQueue;        // Vertex is in queue
+    private final int[] walk;               // Vertex which started walk to the root, for search of cycles
 
 
     public BellmanFord(Graph g) {
+        this(g.compile());
+    }
+
+    public BellmanFord(CsrGraph g) {
         graph = g;
         totalVertex = g.getCount();
         distances = new double[totalVertex];
         tree = new int[totalVertex];
+        queue = new int[Math.max(totalVertex, 1)];
+        inQueue = new boolean[totalVertex];
+        walk = new int[totalVertex];
     }
 
     /**
@@ -42,13 +54,13 @@ public class BellmanFord {
     /**
      * Relaxing edge
      *
-     * @param from   Vertex number
-     * @param fromTo Edge and destination vertex
+     * @param from Vertex number
+     * @param edge Index of edge in edges of vertex
      * @return TRUE, if relaxing change distance, otherwise FALSE
      */
-    private boolean relax(int from, Edge fromTo) {
-        int to = fromTo.to();
-        double newDist = distances[from] + fromTo.weight();
+    private boolean relax(int from, int edge) {
+        int to = graph.getTargets(from)[edge];
+        double newDist = distances[from] + graph.getWeights(from)[edge];
         if (newDist < distances[to]) {
             distances[to] = newDist;
             tree[to] = from;
@@ -59,39 +71,115 @@ public class BellmanFord {
     }
 
     /**
-     * Bellman-Ford algo for min path and find cycles with negative distance
+     * Potentials for Johnson algo: minimal distances from virtual vertex,
+     * which has edges with zero length to all vertexes.
+     * Virtual vertex is not added to graph, all vertexes just start with zero distance.
+     * Distances are reused by the next run, so a copy is returned: potentials are shared by versions of graph.
+     *
+     * @return Copy of distances
+     */
+    public double[] getPotentials() {
+        bellmanFord(-1);
+        return distances.clone();
+    }
+
+    /**
+     * Cycle with negative length found by last run
      *
-     * @param s
-     * @return
+     * @return List of vertexes, the first vertex is repeated at the end. Null, if there is no such cycle
+     */
+    public List<Integer> getNegativeCycle() {
+        return negativeCycle;
+    }
+
+    /**
+     * Queue-based Bellman-Ford algo (SPFA) for min path and find cycles with negative distance.
+     * Only edges of vertexes with changed distance are relaxed.
+     * Tree is checked for cycles after each totalVertex relaxations,
+     * a cycle in the tree always has negative length.
+     *
+     * @param s Source vertex or -1 to start from all vertexes
+     * @return TRUE, if there is no cycle with negative length
      */
     private boolean bellmanFord(int s) {
         src = s;
+        negativeCycle = null;
         // Init arrays
-        Arrays.fill(distances, Double.POSITIVE_INFINITY);
         Arrays.fill(tree, -1);
 
-        distances[s] = 0;
+        // Circular queue of vertexes with changed distance
+        int head = 0;
+        int size = 0;
+        if (s == -1) {
+            Arrays.fill(distances, 0);
+            Arrays.fill(inQueue, true);
+            for (int i = 0; i < totalVertex; i++) {
+                queue[size++] = i;
+            }
+        } else {
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            Arrays.fill(inQueue, false);
+            distances[s] = 0;
+            queue[size++] = s;
+            inQueue[s] = true;
+        }
 
-        // Has changes?
-        boolean changed = true;
+        int relaxations = 0;
 
-        // If after (n+1) step there is not changes
-        // then graph has cycle with negative distance
-        for (int step = 0; step <= totalVertex && changed; step++) {
-            changed = false;
+        while (size > 0) {
+            int i = queue[head];
+            head = (head + 1) % totalVertex;
+            size--;
+            inQueue[i] = false;
 
-            // Loop for all edges from all vertexes
-            for (int i = 0; i < totalVertex; i++) {
-                if (distances[i] != Double.POSITIVE_INFINITY) {
-                    for (Edge edge : graph.getListEdge(i)) {
-                        // Relaxing edge
-                        if (relax(i, edge)) {
-                            changed = true;
+            int[] targets = graph.getTargets(i);
+            for (int e = graph.edgeStart(i); e < graph.edgeEnd(i); e++) {
+                // Relaxing edge
+                if (relax(i, e)) {
+                    int to = targets[e];
+                    if (!inQueue[to]) {
+                        queue[(head + size) % totalVertex] = to;
+                        inQueue[to] = true;
+                        size++;
+                    }
+                    if (++relaxations == totalVertex) {
+                        relaxations = 0;
+                        negativeCycle = findTreeCycle();
+                        if (negativeCycle != null) {
+                            return false;
                         }
                     }
                 }
             }
         }
-        return !changed;
+        return true;
+    }
+
+    /**
+     * Search for cycle in tree of min paths
+     *
+     * @return List of vertexes or null
+     */
+    private List<Integer> findTreeCycle() {
+        Arrays.fill(walk, -1);
+        for (int v = 0; v < totalVertex; v++) {
+            int u = v;
+            // Go to the root, until we meet vertex of this or previous walk
+            while (u != -1 && walk[u] == -1) {
+                walk[u] = v;
+                u = tree[u];
+            }
+            if (u != -1 && walk[u] == v) {
+                // Vertex of this walk, so it is on cycle
+                LinkedList<Integer> cycle = new LinkedList<>();
+                cycle.addFirst(u);
+                for (int w = tree[u]; w != u; w = tree[w]) {
+                    cycle.addFirst(w);
+                }
+                cycle.addFirst(u);
+                return cycle;
+            }
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
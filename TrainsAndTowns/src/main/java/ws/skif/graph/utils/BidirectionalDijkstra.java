@@ -0,0 +1,136 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.LinkedList;
+
+/**
+ * Bidirectional Dijkstra algo for minimal path between 2 vertexes.
+ * Forward search runs on the graph, backward search on the reversed graph,
+ * the search stops when the two frontiers can not give shorter path.
+ * Edges must be non negative.
+ * Instance is not thread-safe, but instances for the same graph can be used in different threads.
+ */
+public class BidirectionalDijkstra {
+
+    private final CsrGraph graph;               // Graph for forward search
+    private final CsrGraph reverse;             // Graph for backward search
+    private final int totalVertex;              // Total number of vertexes in graph
+
+    private int meetingVertex = -1;             // Vertex where the searches met in last query
+    private int settledCount;                   // Number of settled vertexes in last query
+
+    public BidirectionalDijkstra(Graph g) {
+        this(g.compile());
+    }
+
+    public BidirectionalDijkstra(CsrGraph g) {
+        graph = g;
+        reverse = g.getReverse();
+        totalVertex = g.getCount();
+    }
+
+    /**
+     * Number of vertexes settled by both searches in last query
+     *
+     * @return
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Minimal distance between 2 vertexes
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @return Distance or POSITIVE_INFINITY if there is no path
+     */
+    public double distance(int sourceVertex, int targetVertex) {
+        return search(sourceVertex, targetVertex,
+                      DijkstraWorkspace.forThread(totalVertex, DijkstraWorkspace.FORWARD),
+                      DijkstraWorkspace.forThread(totalVertex, DijkstraWorkspace.BACKWARD));
+    }
+
+    /**
+     * Constructs the path of the minimum length between the given two vertexes
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @return List of vertexes from the source to target vertex.
+     * Only the target vertex, if there is no path
+     */
+    public LinkedList<Integer> getPath(int sourceVertex, int targetVertex) {
+        DijkstraWorkspace forward = DijkstraWorkspace.forThread(totalVertex, DijkstraWorkspace.FORWARD);
+        DijkstraWorkspace backward = DijkstraWorkspace.forThread(totalVertex, DijkstraWorkspace.BACKWARD);
+        search(sourceVertex, targetVertex, forward, backward);
+
+        LinkedList<Integer> path = new LinkedList<>();
+        if (meetingVertex == -1) {
+            path.add(targetVertex);
+            return path;
+        }
+
+        // From source to meeting vertex by forward tree
+        for (int v = meetingVertex; v != -1; v = forward.previous(v)) {
+            path.addFirst(v);
+        }
+        // From meeting vertex to target by backward tree
+        for (int v = backward.previous(meetingVertex); v != -1; v = backward.previous(v)) {
+            path.addLast(v);
+        }
+        return path;
+    }
+
+    /**
+     * Run both searches
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @param forward      Workspace for forward search
+     * @param backward     Workspace for backward search
+     * @return Distance
+     */
+    private double search(int sourceVertex, int targetVertex,
+                          DijkstraWorkspace forward, DijkstraWorkspace backward) {
+        forward.addSource(sourceVertex);
+        backward.addSource(targetVertex);
+
+        double best = sourceVertex == targetVertex ? 0 : Double.POSITIVE_INFINITY;
+        meetingVertex = sourceVertex == targetVertex ? sourceVertex : -1;
+        settledCount = 0;
+
+        while (!forward.isEmpty() || !backward.isEmpty()) {
+            if (forward.minKey() + backward.minKey() >= best) {
+                break;
+            }
+
+            boolean isForward = forward.minKey() <= backward.minKey();
+            DijkstraWorkspace current = isForward ? forward : backward;
+            DijkstraWorkspace other = isForward ? backward : forward;
+            CsrGraph g = isForward ? graph : reverse;
+
+            int vertex = current.extractMin();
+            double distance = current.distance(vertex);
+            settledCount++;
+
+            int[] targets = g.getTargets(vertex);
+            double[] weights = g.getWeights(vertex);
+            int last = g.edgeEnd(vertex);
+            for (int e = g.edgeStart(vertex); e < last; e++) {
+                int end = targets[e];
+                current.relax(vertex, end, distance + weights[e]);
+
+                // Path through this vertex
+                double through = current.distance(end) + other.distance(end);
+                if (through < best) {
+                    best = through;
+                    meetingVertex = end;
+                }
+            }
+        }
+
+        return best;
+    }
+}
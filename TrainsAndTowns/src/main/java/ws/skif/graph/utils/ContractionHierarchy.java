@@ -0,0 +1,637 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Contraction hierarchies for fast point-to-point queries.
+ * Vertexes are contracted one by one in order of importance; when a vertex is removed,
+ * shortcut edges keep the minimal distances between its neighbours.
+ * A query is a bidirectional Dijkstra which only goes up in the hierarchy,
+ * shortcuts of the found path are unpacked back to the original vertexes.
+ * Edges must be non negative.
+ * Instance is immutable after construction, queries can run in different threads.
+ */
+public class ContractionHierarchy {
+
+    public static final int DEFAULT_WITNESS_LIMIT = 100;   // Settled vertexes in one witness search
+
+    private final int totalVertex;              // Total number of vertexes in graph
+    private final int[] rank;                   // Order of contraction of each vertex
+
+    private final int[] upOffsets;              // Edges to higher vertexes, by source vertex
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upMiddle;               // Contracted vertex of shortcut, -1 for original edge
+
+    private final int[] downOffsets;            // Edges from higher vertexes, by destination vertex
+    private final int[] downSources;
+    private final double[] downWeights;
+    private final int[] downMiddle;
+
+    private final long preprocessingTime;       // Time of preprocessing, ms
+    private final int shortcutCount;            // Number of added shortcuts
+
+    public ContractionHierarchy(Graph g) {
+        this(g.compile());
+    }
+
+    public ContractionHierarchy(CsrGraph g) {
+        this(g, DEFAULT_WITNESS_LIMIT);
+    }
+
+    /**
+     * Constructor. Runs preprocessing
+     *
+     * @param g            Graph
+     * @param witnessLimit Maximum settled vertexes in search of path which makes shortcut needless.
+     *                     Lower limit makes preprocessing faster, but adds more shortcuts
+     */
+    public ContractionHierarchy(CsrGraph g, int witnessLimit) {
+        if (g.isNegativeEdge()) {
+            throw new IllegalArgumentException("Contraction hierarchies require graph without negative edges");
+        }
+        long start = System.currentTimeMillis();
+        totalVertex = g.getCount();
+
+        Contraction contraction = new Contraction(g, witnessLimit);
+        contraction.run();
+
+        rank = contraction.rank;
+        shortcutCount = contraction.shortcuts;
+
+        ArcBuffer up = contraction.up;
+        upOffsets = up.offsets(totalVertex);
+        upTargets = new int[up.size];
+        upWeights = new double[up.size];
+        upMiddle = new int[up.size];
+        up.fill(upOffsets, upTargets, upWeights, upMiddle);
+
+        ArcBuffer down = contraction.down;
+        downOffsets = down.offsets(totalVertex);
+        downSources = new int[down.size];
+        downWeights = new double[down.size];
+        downMiddle = new int[down.size];
+        down.fill(downOffsets, downSources, downWeights, downMiddle);
+
+        preprocessingTime = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Time of preprocessing
+     *
+     * @return Time in ms
+     */
+    public long getPreprocessingTime() {
+        return preprocessingTime;
+    }
+
+    /**
+     * Number of shortcuts added by preprocessing
+     *
+     * @return
+     */
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * Number of edges in hierarchy, original edges and shortcuts
+     *
+     * @return
+     */
+    public int getEdgeCount() {
+        return upTargets.length + downSources.length;
+    }
+
+    /**
+     * Size of hierarchy in memory
+     *
+     * @return Size in bytes
+     */
+    public long getIndexSize() {
+        return 4L * rank.length
+                + 4L * (upOffsets.length + downOffsets.length)
+                + 16L * (upTargets.length + downSources.length);
+    }
+
+    /**
+     * Order of contraction of vertex
+     *
+     * @param vertex
+     * @return
+     */
+    public int getRank(int vertex) {
+        return rank[vertex];
+    }
+
+    @Override
+    public String toString() {
+        return "ContractionHierarchy{" +
+                "vertexes=" + totalVertex +
+                ", edges=" + getEdgeCount() +
+                ", shortcuts=" + shortcutCount +
+                ", indexSize=" + getIndexSize() +
+                ", preprocessingTime=" + preprocessingTime +
+                '}';
+    }
+
+    /**
+     * Minimal distance between 2 vertexes
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @return Distance or POSITIVE_INFINITY if there is no path
+     */
+    public double distance(int sourceVertex, int targetVertex) {
+        DijkstraWorkspace forward = DijkstraWorkspace.forThread(totalVertex, DijkstraWorkspace.FORWARD);
+        DijkstraWorkspace backward = DijkstraWorkspace.forThread(totalVertex, DijkstraWorkspace.BACKWARD);
+        int meeting = search(sourceVertex, targetVertex, forward, backward);
+
+        return meeting == -1
+                ? Double.POSITIVE_INFINITY
+                : forward.distance(meeting) + backward.distance(meeting);
+    }
+
+    /**
+     * Constructs the path of the minimum length between the given two vertexes
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @return List of original vertexes from the source to target vertex.
+     * Only the target vertex, if there is no path
+     */
+    public LinkedList<Integer> getPath(int sourceVertex, int targetVertex) {
+        DijkstraWorkspace forward = DijkstraWorkspace.forThread(totalVertex, DijkstraWorkspace.FORWARD);
+        DijkstraWorkspace backward = DijkstraWorkspace.forThread(totalVertex, DijkstraWorkspace.BACKWARD);
+        int meeting = search(sourceVertex, targetVertex, forward, backward);
+
+        LinkedList<Integer> path = new LinkedList<>();
+        if (meeting == -1) {
+            path.add(targetVertex);
+            return path;
+        }
+
+        // Path in hierarchy: up from source to meeting vertex, then down to target
+        LinkedList<Integer> hierarchyPath = new LinkedList<>();
+        for (int v = meeting; v != -1; v = forward.previous(v)) {
+            hierarchyPath.addFirst(v);
+        }
+        for (int v = backward.previous(meeting); v != -1; v = backward.previous(v)) {
+            hierarchyPath.addLast(v);
+        }
+
+        // Unpack shortcuts
+        int[] stack = new int[16];
+        Integer previous = null;
+        for (Integer vertex : hierarchyPath) {
+            if (previous == null) {
+                path.add(vertex);
+            } else {
+                stack = unpack(previous, vertex, stack, path);
+            }
+            previous = vertex;
+        }
+        return path;
+    }
+
+    /**
+     * Unpack edge of hierarchy to original vertexes and add them to path, except the first one
+     *
+     * @param from  From vertex
+     * @param to    To vertex
+     * @param stack Stack of edges to unpack, pairs of vertexes
+     * @param path  Path
+     * @return Stack, may be reallocated
+     */
+    private int[] unpack(int from, int to, int[] stack, LinkedList<Integer> path) {
+        int size = 0;
+        stack[size++] = from;
+        stack[size++] = to;
+
+        while (size > 0) {
+            int b = stack[--size];
+            int a = stack[--size];
+            int middle = middle(a, b);
+            if (middle == -1) {
+                path.add(b);
+            } else {
+                if (size + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                // Second half goes first to the stack, so the first half is unpacked first
+                stack[size++] = middle;
+                stack[size++] = b;
+                stack[size++] = a;
+                stack[size++] = middle;
+            }
+        }
+        return stack;
+    }
+
+    /**
+     * Contracted vertex of edge
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return Vertex or -1 for original edge
+     */
+    private int middle(int from, int to) {
+        if (rank[to] > rank[from]) {
+            for (int e = upOffsets[from]; e < upOffsets[from + 1]; e++) {
+                if (upTargets[e] == to) {
+                    return upMiddle[e];
+                }
+            }
+        } else {
+            for (int e = downOffsets[to]; e < downOffsets[to + 1]; e++) {
+                if (downSources[e] == from) {
+                    return downMiddle[e];
+                }
+            }
+        }
+        throw new IllegalStateException("No edge in hierarchy: " + from + " -> " + to);
+    }
+
+    /**
+     * Bidirectional search up in hierarchy
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @param forward      Workspace for search from source
+     * @param backward     Workspace for search from target
+     * @return Vertex with minimal sum of distances or -1 if there is no path
+     */
+    private int search(int sourceVertex, int targetVertex,
+                       DijkstraWorkspace forward, DijkstraWorkspace backward) {
+        forward.addSource(sourceVertex);
+        backward.addSource(targetVertex);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+
+        while (!forward.isEmpty() || !backward.isEmpty()) {
+            // No vertex in heaps can give shorter path
+            if (Math.min(forward.minKey(), backward.minKey()) >= best) {
+                break;
+            }
+
+            boolean isForward = forward.minKey() <= backward.minKey();
+            DijkstraWorkspace current = isForward ? forward : backward;
+            DijkstraWorkspace other = isForward ? backward : forward;
+            int[] offsets = isForward ? upOffsets : downOffsets;
+            int[] ends = isForward ? upTargets : downSources;
+            double[] weights = isForward ? upWeights : downWeights;
+
+            int vertex = current.extractMin();
+            double distance = current.distance(vertex);
+
+            double through = distance + other.distance(vertex);
+            if (through < best) {
+                best = through;
+                meeting = vertex;
+            }
+
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                current.relax(vertex, ends[e], distance + weights[e]);
+            }
+        }
+
+        return meeting;
+    }
+
+    /**
+     * State of preprocessing
+     */
+    private static class Contraction {
+        private final int totalVertex;
+        private final int witnessLimit;
+        private final ArcList[] out;            // Outgoing edges and shortcuts of each vertex
+        private final ArcList[] in;             // Incoming edges and shortcuts of each vertex
+        private final boolean[] contracted;     // Vertex is contracted
+        private final int[] deletedNeighbours;  // Number of contracted neighbours
+        private final DijkstraWorkspace witness;
+
+        private final int[] rank;
+        private final ArcBuffer up = new ArcBuffer();
+        private final ArcBuffer down = new ArcBuffer();
+        private int shortcuts;
+
+        Contraction(CsrGraph g, int witnessLimit) {
+            totalVertex = g.getCount();
+            this.witnessLimit = witnessLimit;
+            out = new ArcList[totalVertex];
+            in = new ArcList[totalVertex];
+            for (int v = 0; v < totalVertex; v++) {
+                out[v] = new ArcList();
+                in[v] = new ArcList();
+            }
+            contracted = new boolean[totalVertex];
+            deletedNeighbours = new int[totalVertex];
+            witness = new DijkstraWorkspace(totalVertex);
+            rank = new int[totalVertex];
+
+            for (int u = 0; u < totalVertex; u++) {
+                int[] targets = g.getTargets(u);
+                double[] weights = g.getWeights(u);
+                for (int e = g.edgeStart(u); e < g.edgeEnd(u); e++) {
+                    // Placeholders of missing edges and loops are not needed
+                    if (targets[e] != u && weights[e] < Graph.NO_EDGE) {
+                        addArc(u, targets[e], weights[e], -1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Contract all vertexes in order of priority, priorities are updated lazily
+         */
+        void run() {
+            LongHeap heap = new LongHeap(totalVertex);
+            for (int v = 0; v < totalVertex; v++) {
+                heap.push(LongHeap.key(priority(v), v));
+            }
+
+            int order = 0;
+            while (!heap.isEmpty()) {
+                int v = LongHeap.vertex(heap.pop());
+                int priority = priority(v);
+                if (!heap.isEmpty() && LongHeap.key(priority, v) > heap.peek()) {
+                    // Priority is outdated, vertex is not the least important any more
+                    heap.push(LongHeap.key(priority, v));
+                    continue;
+                }
+                contract(v);
+                rank[v] = order++;
+            }
+        }
+
+        /**
+         * Importance of vertex: edge difference plus number of contracted neighbours
+         */
+        private int priority(int v) {
+            int degree = 0;
+            for (int i = 0; i < in[v].size; i++) {
+                degree += contracted[in[v].vertex[i]] ? 0 : 1;
+            }
+            for (int i = 0; i < out[v].size; i++) {
+                degree += contracted[out[v].vertex[i]] ? 0 : 1;
+            }
+            return shortcuts(v, false) - degree + deletedNeighbours[v];
+        }
+
+        /**
+         * Contract vertex: add shortcuts and store its edges to the remaining vertexes
+         */
+        private void contract(int v) {
+            shortcuts += shortcuts(v, true);
+
+            ArcList outList = out[v];
+            for (int i = 0; i < outList.size; i++) {
+                int x = outList.vertex[i];
+                if (!contracted[x]) {
+                    up.add(v, x, outList.weight[i], outList.middle[i]);
+                    deletedNeighbours[x]++;
+                }
+            }
+            ArcList inList = in[v];
+            for (int i = 0; i < inList.size; i++) {
+                int u = inList.vertex[i];
+                if (!contracted[u]) {
+                    down.add(v, u, inList.weight[i], inList.middle[i]);
+                    deletedNeighbours[u]++;
+                }
+            }
+            contracted[v] = true;
+        }
+
+        /**
+         * Count or add shortcuts needed to contract vertex
+         *
+         * @param v   Vertex
+         * @param add Add shortcuts to graph
+         * @return Number of shortcuts
+         */
+        private int shortcuts(int v, boolean add) {
+            ArcList inList = in[v];
+            ArcList outList = out[v];
+
+            double maxOut = 0;
+            for (int j = 0; j < outList.size; j++) {
+                if (!contracted[outList.vertex[j]]) {
+                    maxOut = Math.max(maxOut, outList.weight[j]);
+                }
+            }
+
+            int count = 0;
+            for (int i = 0; i < inList.size; i++) {
+                int u = inList.vertex[i];
+                if (contracted[u]) {
+                    continue;
+                }
+                double w1 = inList.weight[i];
+                searchWitness(u, v, w1 + maxOut);
+
+                for (int j = 0; j < outList.size; j++) {
+                    int x = outList.vertex[j];
+                    if (contracted[x] || x == u) {
+                        continue;
+                    }
+                    double length = w1 + outList.weight[j];
+                    if (witness.distance(x) > length) {
+                        count++;
+                        if (add) {
+                            addArc(u, x, length, v);
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Limited Dijkstra search in remaining graph without vertex
+         *
+         * @param source  Source vertex
+         * @param skipped Vertex under contraction
+         * @param limit   Maximum distance
+         */
+        private void searchWitness(int source, int skipped, double limit) {
+            witness.reset(totalVertex);
+            witness.addSource(source);
+            int settled = 0;
+
+            while (!witness.isEmpty() && witness.minKey() <= limit && settled++ < witnessLimit) {
+                int u = witness.extractMin();
+                double distance = witness.distance(u);
+                ArcList list = out[u];
+                for (int i = 0; i < list.size; i++) {
+                    int x = list.vertex[i];
+                    if (x != skipped && !contracted[x]) {
+                        witness.relax(u, x, distance + list.weight[i]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Add edge or shortcut, parallel edges keep the minimal weight
+         */
+        private void addArc(int from, int to, double weight, int middle) {
+            int i = out[from].find(to);
+            if (i == -1) {
+                out[from].add(to, weight, middle);
+                in[to].add(from, weight, middle);
+            } else if (weight < out[from].weight[i]) {
+                out[from].set(i, weight, middle);
+                int j = in[to].find(from);
+                in[to].set(j, weight, middle);
+            }
+        }
+    }
+
+    /**
+     * Growable list of edges of one vertex in primitive arrays
+     */
+    private static class ArcList {
+        int[] vertex = new int[4];
+        double[] weight = new double[4];
+        int[] middle = new int[4];
+        int size;
+
+        int find(int v) {
+            for (int i = 0; i < size; i++) {
+                if (vertex[i] == v) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void add(int v, double w, int m) {
+            if (size == vertex.length) {
+                vertex = Arrays.copyOf(vertex, size * 2);
+                weight = Arrays.copyOf(weight, size * 2);
+                middle = Arrays.copyOf(middle, size * 2);
+            }
+            vertex[size] = v;
+            weight[size] = w;
+            middle[size] = m;
+            size++;
+        }
+
+        void set(int i, double w, int m) {
+            weight[i] = w;
+            middle[i] = m;
+        }
+    }
+
+    /**
+     * Growable list of edges of all vertexes, converted to CSR form at the end
+     */
+    private static class ArcBuffer {
+        int[] owner = new int[16];              // Vertex which the edge is stored for
+        int[] vertex = new int[16];             // Other end of edge
+        double[] weight = new double[16];
+        int[] middle = new int[16];
+        int size;
+
+        void add(int o, int v, double w, int m) {
+            if (size == owner.length) {
+                owner = Arrays.copyOf(owner, size * 2);
+                vertex = Arrays.copyOf(vertex, size * 2);
+                weight = Arrays.copyOf(weight, size * 2);
+                middle = Arrays.copyOf(middle, size * 2);
+            }
+            owner[size] = o;
+            vertex[size] = v;
+            weight[size] = w;
+            middle[size] = m;
+            size++;
+        }
+
+        int[] offsets(int totalVertex) {
+            int[] offsets = new int[totalVertex + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[owner[i] + 1]++;
+            }
+            for (int v = 0; v < totalVertex; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            return offsets;
+        }
+
+        void fill(int[] offsets, int[] vertexes, double[] weights, int[] middles) {
+            int[] fill = Arrays.copyOf(offsets, offsets.length - 1);
+            for (int i = 0; i < size; i++) {
+                int position = fill[owner[i]]++;
+                vertexes[position] = vertex[i];
+                weights[position] = weight[i];
+                middles[position] = middle[i];
+            }
+        }
+    }
+
+    /**
+     * Binary min-heap of priority and vertex packed to long
+     */
+    private static class LongHeap {
+        private long[] items;
+        private int size;
+
+        LongHeap(int capacity) {
+            items = new long[Math.max(capacity, 1)];
+        }
+
+        static long key(int priority, int vertex) {
+            return ((long) priority << 32) | (vertex & 0xFFFFFFFFL);
+        }
+
+        static int vertex(long key) {
+            return (int) key;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return items[0];
+        }
+
+        void push(long item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size++;
+            while (i > 0 && items[(i - 1) >>> 1] > item) {
+                items[i] = items[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            items[i] = item;
+        }
+
+        long pop() {
+            long result = items[0];
+            long item = items[--size];
+            int i = 0;
+            int next = 1;
+            while (next < size) {
+                if (next + 1 < size && items[next + 1] < items[next]) {
+                    next++;
+                }
+                if (item <= items[next]) {
+                    break;
+                }
+                items[i] = items[next];
+                i = next;
+                next = 2 * i + 1;
+            }
+            items[i] = item;
+            return result;
+        }
+    }
+}
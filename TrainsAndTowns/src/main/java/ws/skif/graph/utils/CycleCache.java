@@ -0,0 +1,138 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Cycles through vertexes for TRIPS requests.
+ * Search without limit of stops enumerates all cycles of the component, so cycles through recently
+ * requested vertexes are kept while their total size is within the limit, the least recently used are dropped first.
+ * Searches are reused by requests instead of allocating arrays of ElementaryCycles each time.
+ * All methods are thread-safe.
+ */
+class CycleCache {
+
+    private final CsrGraph graph;
+    private final long maxVertexes;         // Maximum total number of vertexes in kept cycles
+    private final BlockingQueue<ElementaryCycles> searches;    // Free searches, at most one per processor
+
+    private final LinkedHashMap<Integer, List<int[]>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;                      // Total number of vertexes in kept cycles
+
+    /**
+     * Constructor
+     *
+     * @param graph       Graph of cycles
+     * @param maxVertexes Maximum total number of vertexes in kept cycles
+     */
+    CycleCache(CsrGraph graph, long maxVertexes) {
+        this.graph = graph;
+        this.maxVertexes = maxVertexes;
+        this.searches = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Pass cycles through vertex with at most maxStops edges to visitor.
+     * Each cycle starts from its least vertex, the first vertex is repeated at the end.
+     *
+     * @param vertex   Vertex of cycles
+     * @param maxStops Maximum number of edges in cycle, -1 without limit
+     * @param visitor
+     */
+    void forEachCycle(int vertex, int maxStops, ElementaryCycles.CycleVisitor visitor) {
+        List<int[]> cycles = lookup(vertex);
+        if (cycles != null) {
+            for (int[] cycle : cycles) {
+                if ((maxStops == -1 || cycle.length - 1 <= maxStops) && !visitor.visit(cycle, cycle.length)) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        ElementaryCycles search = searches.poll();
+        if (search == null) {
+            search = new ElementaryCycles(graph);
+        }
+        try {
+            if (maxStops != -1) {
+                // Bounded search is cheap, its cycles are not kept
+                search.findCycles(vertex, maxStops, visitor);
+                return;
+            }
+
+            // Cycles are kept while they fit the limit, they are passed to visitor anyway
+            List<int[]> found = new ArrayList<>();
+            long[] total = new long[1];
+            boolean[] stopped = new boolean[1];
+            search.findCycles(vertex, (cycle, length) -> {
+                if (!contains(cycle, length, vertex)) {
+                    return true;
+                }
+                total[0] += length;
+                if (total[0] <= maxVertexes) {
+                    int[] copy = new int[length];
+                    System.arraycopy(cycle, 0, copy, 0, length);
+                    found.add(copy);
+                } else if (!found.isEmpty()) {
+                    found.clear();
+                }
+                if (!visitor.visit(cycle, length)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            });
+            if (!stopped[0] && total[0] <= maxVertexes) {
+                store(vertex, found, total[0]);
+            }
+        } finally {
+            searches.offer(search);
+        }
+    }
+
+    /**
+     * Number of vertexes with kept cycles
+     *
+     * @return
+     */
+    synchronized int getCount() {
+        return entries.size();
+    }
+
+    private synchronized List<int[]> lookup(int vertex) {
+        return entries.get(vertex);
+    }
+
+    private synchronized void store(int vertex, List<int[]> cycles, long vertexes) {
+        if (entries.containsKey(vertex)) {
+            return;
+        }
+        entries.put(vertex, cycles);
+        size += vertexes;
+        Iterator<Map.Entry<Integer, List<int[]>>> iterator = entries.entrySet().iterator();
+        while (size > maxVertexes && iterator.hasNext()) {
+            Map.Entry<Integer, List<int[]>> eldest = iterator.next();
+            for (int[] cycle : eldest.getValue()) {
+                size -= cycle.length;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static boolean contains(int[] cycle, int length, int vertex) {
+        for (int i = 0; i < length; i++) {
+            if (cycle[i] == vertex) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,13 +1,13 @@
 package ws.skif.graph.utils;
 
-import ws.skif.graph.models.Edge;
+import ws.skif.graph.models.CsrGraph;
 import ws.skif.graph.models.Graph;
 
-import java.util.Arrays;
-
 public class Dijkstra {
 
-    private final Graph graph;                  // Graph for which calculations are performed
+    private final CsrGraph graph;               // Graph for which calculations are performed
+    private final double[] potentials;          // Potentials for reweighting of edges, may be null
+    private final ShortestPathCache cache;      // Computed trees, may be null
 
     private int sourceVertex = -1;              // Source vertex
     private int totalVertex;                    // Total number of vertexes in graph
@@ -15,14 +15,77 @@ public class Dijkstra {
     private double[] distances;                 // Array of distances
     private int[] tree;                         // Bypass tree by minimal paths
 
-    private int[] positions;                    // Vertex indexes in heap
-    private Pair[] binHeap;                     // Binary heap
-    private int heapSize;                       // Size of heap
-    private boolean[] passed;                   // Array of passed vertexes
-
     public Dijkstra(Graph g) {
+        this(g.compile());
+    }
+
+    public Dijkstra(CsrGraph g) {
+        this(g, null, null);
+    }
+
+    /**
+     * Constructor. Computed trees are kept in cache,
+     * which can be shared by several instances for the same graph.
+     *
+     * @param g     Graph
+     * @param cache Cache of trees
+     */
+    public Dijkstra(CsrGraph g, ShortestPathCache cache) {
+        this(g, null, cache);
+    }
+
+    /**
+     * Constructor for Johnson algo. Edges are reweighted on the fly:
+     * weight(u, v) + potentials[u] - potentials[v] must be non negative.
+     * Graph is not changed, distances are returned for original weights.
+     *
+     * @param g          Graph
+     * @param potentials Potential of each vertex
+     */
+    public Dijkstra(CsrGraph g, double[] potentials) {
+        this(g, potentials, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param g          Graph
+     * @param potentials Potential of each vertex, may be null
+     * @param cache      Cache of trees, may be null
+     */
+    public Dijkstra(CsrGraph g, double[] potentials, ShortestPathCache cache) {
         graph = g;
         totalVertex = g.getCount();
+        this.potentials = potentials;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns minimal paths from vertex.
+     * Tree is taken from cache if possible.
+     *
+     * @param seekVertex Original vertex number
+     * @return Tree of minimal paths
+     */
+    public ShortestPathTree getShortestPathTree(int seekVertex) {
+        if (seekVertex < 0 || seekVertex >= totalVertex) {
+            return null;
+        }
+        if (cache != null) {
+            return cache.get(seekVertex, this::computeTree);
+        }
+        return computeTree(seekVertex);
+    }
+
+    /**
+     * Run Dijkstra algo and wrap result to tree
+     *
+     * @param seekVertex Original vertex number
+     * @return Tree of minimal paths
+     */
+    private synchronized ShortestPathTree computeTree(int seekVertex) {
+        dijkstra(seekVertex);
+        return new ShortestPathTree(seekVertex, distances, tree);
     }
 
     /**
@@ -36,6 +99,9 @@ public class Dijkstra {
         if (seekVertex < 0 || seekVertex >= totalVertex) {
             return null;
         }
+        if (cache != null) {
+            return getShortestPathTree(seekVertex).getTree();
+        }
         if (seekVertex != sourceVertex) {
             dijkstra(sourceVertex = seekVertex);
         }
@@ -53,6 +119,9 @@ public class Dijkstra {
         if (seekVertex < 0 || seekVertex >= totalVertex) {
             return null;
         }
+        if (cache != null) {
+            return getShortestPathTree(seekVertex).getDistances();
+        }
         if (seekVertex != sourceVertex) {
             dijkstra(seekVertex);
         }
@@ -65,191 +134,112 @@ public class Dijkstra {
      * @param sourceVertex 0 vertex
      */
     public void dijkstra(int sourceVertex) {
-        this.sourceVertex = sourceVertex;
-        this.distances = new double[totalVertex];
-        this.tree = new int[totalVertex];
-        this.positions = new int[totalVertex];
-        this.binHeap = new Pair[totalVertex];
-        this.passed = new boolean[totalVertex];
-
-        Arrays.fill(distances, Double.POSITIVE_INFINITY);
-        Arrays.fill(tree, -1);
-        Arrays.fill(positions, -1);
+        DijkstraWorkspace workspace = run(sourceVertex);
 
-        heapSize = 0;
-        distances[sourceVertex] = 0;
-
-        // Init heap
-        addToHeap(new Pair(sourceVertex, 0));
-
-        while (!emptyHeap()) {
-            // Greedy algorithm take nearest vertex
-            Pair minPair = extractHeap();
-            int currentVertex = minPair.vertex;
-            passed[currentVertex] = true;
+        this.sourceVertex = sourceVertex;
+        this.distances = workspace.copyDistances(totalVertex);
+        this.tree = workspace.copyTree(totalVertex);
 
-            // Relaxing edges
-            for (Edge edge : graph.getListEdge(currentVertex)) {
-                int end = edge.to();
-                if (!passed[end]) {
-                    double newDist = distances[currentVertex] + edge.weight();
-                    if (positions[end] == -1) {
-                        // New vertex - add to heap
-                        addToHeap(new Pair(end, newDist));
-                        tree[end] = currentVertex;
-                        distances[end] = newDist;
-                    } else {
-                        // Heap already in heap. Relaxing edges
-                        Pair p = getFromHeap(positions[end]);
-                        if (newDist < p.distance) {
-                            changeHeap(positions[end], newDist);
-                            tree[end] = currentVertex;
-                            distances[end] = newDist;
-                        }
-                    }
-                }
+        if (potentials != null) {
+            // Back to original weights
+            for (int j = 0; j < totalVertex; ++j) {
+                distances[j] += potentials[j] - potentials[sourceVertex];
             }
         }
     }
 
     /**
-     * Change position in heap
-     *
-     * @param i       Position in heap
-     * @param newDist New Distance
-     */
-    private void changeHeap(int i, double newDist) {
-        binHeap[i].distance = newDist;
-        heapUp(i);
-    }
-
-    /**
-     * Доступ к элементу кучи по индексу.
-     *
-     * @param i Индекс элемента
-     * @return
-     */
-    private Pair getFromHeap(int i) {
-        return binHeap[i];
-    }
-
-    /**
-     * Extract from heap of element with minimum distance to it.
-     *
-     * @return The element with highest priority (smallest distance).
-     */
-    private Pair extractHeap() {
-        Pair minPair = binHeap[0];
-        positions[minPair.vertex] = -1;
-        if (--heapSize > 0) {
-            binHeap[0] = binHeap[heapSize];
-            binHeap[heapSize] = null;
-            positions[binHeap[0].vertex] = 0;
-            heapDown(0);
-        }
-        return minPair;
-    }
-
-    /**
-     * Adding new item to heap.
+     * Dijkstra algo without allocation of memory.
+     * Result is kept in workspace of current thread
+     * and is valid until next run in this thread.
+     * If potentials are set, workspace has distances for reweighted edges.
      *
-     * @param pair New item
+     * @param sourceVertex 0 vertex
+     * @return Workspace with distances and tree
      */
-    private void addToHeap(Pair pair) {
-        binHeap[positions[pair.vertex] = heapSize] = pair;
-        heapUp(heapSize++);
-    }
+    public DijkstraWorkspace run(int sourceVertex) {
+        DijkstraWorkspace workspace = DijkstraWorkspace.forThread(totalVertex);
 
-    /**
-     * Check if heap is empty.
-     *
-     * @return
-     */
-    private boolean emptyHeap() {
+        // Init heap
+        workspace.addSource(sourceVertex);
 
-        return heapSize == 0;
-    }
+        while (!workspace.isEmpty()) {
+            // Greedy algorithm take nearest vertex
+            int currentVertex = workspace.extractMin();
+            double currentDistance = workspace.distance(currentVertex);
 
-    /**
-     * Dragging a heap element at a specified index up the heap
-     *
-     * @param i Index of element
-     */
-    private void heapUp(int i) {
-        Pair pair = binHeap[i];
-        int prev = (i - 1) / 2;
-        while (prev >= 0 && pair.compareTo(binHeap[prev]) < 0) {
-            positions[binHeap[prev].vertex] = i;
-            binHeap[i] = binHeap[prev];
-            i = prev;
-            if (prev == 0) break;
-            prev = (i - 1) / 2;
+            // Relaxing edges
+            relaxAll(workspace, currentVertex, currentDistance);
         }
-        positions[pair.vertex] = i;
-        binHeap[i] = pair;
+
+        return workspace;
     }
 
     /**
-     * Dragging a heap element with a specified index down the heap
+     * Relaxing edges of vertex, reweighted by potentials if they are set
      *
-     * @param i Index of element
+     * @param workspace       Workspace
+     * @param currentVertex   Vertex
+     * @param currentDistance Distance to vertex
      */
-    private void heapDown(int i) {
-        Pair pair = binHeap[i];
-        int next = 2 * i + 1;
-        while (next < heapSize) {
-            if (next + 1 < heapSize && binHeap[next + 1].compareTo(binHeap[next]) < 0) {
-                next++;
+    private void relaxAll(DijkstraWorkspace workspace, int currentVertex, double currentDistance) {
+        int[] targets = graph.getTargets(currentVertex);
+        double[] weights = graph.getWeights(currentVertex);
+        int start = graph.edgeStart(currentVertex);
+        int end = graph.edgeEnd(currentVertex);
+        if (potentials == null) {
+            for (int e = start; e < end; e++) {
+                workspace.relax(currentVertex, targets[e], currentDistance + weights[e]);
             }
-            if (pair.compareTo(binHeap[next]) <= 0) {
-                break;
+        } else {
+            double p = potentials[currentVertex];
+            for (int e = start; e < end; e++) {
+                int to = targets[e];
+                workspace.relax(currentVertex, to, currentDistance + (weights[e] + (p - potentials[to])));
             }
-            positions[binHeap[next].vertex] = i;
-            binHeap[i] = binHeap[next];
-            i = next;
-            next = 2 * i + 1;
         }
-        positions[pair.vertex] = i;
-        binHeap[i] = pair;
     }
 
     /**
-     * The pair from number of vertex and distance to it are heap element
-     * Comparison by distance.
+     * Dijkstra algo which stops as soon as target vertex is reached.
+     * Result is kept in workspace of current thread
+     * and is valid until next run in this thread.
+     * If potentials are set, workspace has distances for reweighted edges.
+     *
+     * @param sourceVertex 0 vertex
+     * @param targetVertex Target vertex
+     * @return Workspace with distances and tree of settled vertexes
      */
-    private static class Pair implements Comparable<Pair> {
-        int vertex;
-        double distance;
+    public DijkstraWorkspace search(int sourceVertex, int targetVertex) {
+        DijkstraWorkspace workspace = DijkstraWorkspace.forThread(totalVertex);
 
-        public Pair(int v, double d) {
-            vertex = v;
-            distance = d;
-        }
-
-        @Override
-        public int compareTo(Pair p) {
-            return
-                    distance < p.distance ? -1 :
-                            distance == p.distance ? vertex - p.vertex : 1;
-        }
+        workspace.addSource(sourceVertex);
 
-        @Override
-        public boolean equals(Object o) {
-            if (o == null && !(o instanceof Pair)) {
-                return false;
+        while (!workspace.isEmpty()) {
+            int currentVertex = workspace.extractMin();
+            if (currentVertex == targetVertex) {
+                break;
             }
-            Pair other = (Pair) o;
-            return vertex == other.vertex && distance == other.distance;
-        }
+            double currentDistance = workspace.distance(currentVertex);
 
-        @Override
-        public int hashCode() {
-            return vertex ^ new Double(distance).hashCode();
+            relaxAll(workspace, currentVertex, currentDistance);
         }
 
-        @Override
-        public String toString() {
-            return "(" + vertex + "," + distance + ")";
-        }
+        return workspace;
+    }
+
+    /**
+     * Minimal distance between 2 vertexes.
+     * Search stops as soon as target vertex is reached.
+     *
+     * @param sourceVertex From vertex
+     * @param targetVertex To vertex
+     * @return Distance or POSITIVE_INFINITY if there is no path
+     */
+    public double distance(int sourceVertex, int targetVertex) {
+        double distance = search(sourceVertex, targetVertex).distance(targetVertex);
+        return potentials == null
+                ? distance
+                : distance + potentials[targetVertex] - potentials[sourceVertex];
     }
 }
@@ -0,0 +1,332 @@
+package ws.skif.graph.utils;
+
+import java.util.Arrays;
+
+/**
+ * Reusable state of Dijkstra algo: distances, tree and indexed binary heap
+ * stored in primitive arrays.
+ * Arrays are not cleared between runs: every run has its own epoch number,
+ * and a vertex stamped with older epoch is treated as not visited.
+ * Workspace is not thread-safe, use forThread() to get the workspace of current thread.
+ * A thread running a task of WorkspacePool gets workspaces borrowed from the pool instead.
+ */
+public class DijkstraWorkspace {
+
+    public static final int FORWARD = 0;        // Slot of workspace for forward search
+    public static final int BACKWARD = 1;       // Slot of workspace for backward search
+
+    private static final ThreadLocal<DijkstraWorkspace[]> WORKSPACES =
+            ThreadLocal.withInitial(DijkstraWorkspace::newPair);
+    static final ThreadLocal<DijkstraWorkspace[]> BORROWED = new ThreadLocal<>();  // Set by WorkspacePool
+
+    private int epoch;                          // Number of current run
+    private int[] visited;                      // Epoch when vertex got distance
+    private int[] settled;                      // Epoch when vertex was extracted from heap
+    private double[] distances;                 // Array of distances
+    private int[] tree;                         // Bypass tree by minimal paths
+    private int[] positions;                    // Vertex indexes in heap
+
+    private int[] heapVertex;                   // Binary heap, vertexes
+    private double[] heapKey;                   // Binary heap, keys
+    private int heapSize;                       // Size of heap
+
+    public DijkstraWorkspace() {
+        this(0);
+    }
+
+    public DijkstraWorkspace(int capacity) {
+        allocate(capacity);
+    }
+
+    /**
+     * Workspace of current thread, prepared for new run
+     *
+     * @param totalVertex Number of vertexes in graph
+     * @return
+     */
+    public static DijkstraWorkspace forThread(int totalVertex) {
+        return forThread(totalVertex, FORWARD);
+    }
+
+    /**
+     * Workspace of current thread, prepared for new run.
+     * Each thread has separate workspaces for forward and backward search.
+     *
+     * @param totalVertex Number of vertexes in graph
+     * @param slot        FORWARD or BACKWARD
+     * @return
+     */
+    public static DijkstraWorkspace forThread(int totalVertex, int slot) {
+        DijkstraWorkspace[] workspaces = BORROWED.get();
+        DijkstraWorkspace workspace = (workspaces != null ? workspaces : WORKSPACES.get())[slot];
+        workspace.reset(totalVertex);
+        return workspace;
+    }
+
+    /**
+     * Workspaces for forward and backward search
+     *
+     * @return
+     */
+    static DijkstraWorkspace[] newPair() {
+        return new DijkstraWorkspace[]{new DijkstraWorkspace(), new DijkstraWorkspace()};
+    }
+
+    /**
+     * Prepare workspace for new run. O(1) unless graph grows.
+     *
+     * @param totalVertex Number of vertexes in graph
+     */
+    public void reset(int totalVertex) {
+        if (visited.length < totalVertex) {
+            allocate(Math.max(totalVertex, visited.length * 2));
+        }
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            Arrays.fill(settled, 0);
+            epoch = 1;
+        }
+        heapSize = 0;
+    }
+
+    private void allocate(int capacity) {
+        visited = new int[capacity];
+        settled = new int[capacity];
+        distances = new double[capacity];
+        tree = new int[capacity];
+        positions = new int[capacity];
+        heapVertex = new int[capacity];
+        heapKey = new double[capacity];
+        epoch = 0;
+    }
+
+    /**
+     * Distance to vertex found in current run
+     *
+     * @param vertex
+     * @return Distance or POSITIVE_INFINITY if vertex is not reached
+     */
+    public double distance(int vertex) {
+        return visited[vertex] == epoch ? distances[vertex] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Previous vertex on minimal path
+     *
+     * @param vertex
+     * @return Vertex or -1 if vertex is source or not reached
+     */
+    public int previous(int vertex) {
+        return visited[vertex] == epoch ? tree[vertex] : -1;
+    }
+
+    /**
+     * Vertex was extracted from heap, its distance is final
+     *
+     * @param vertex
+     * @return
+     */
+    public boolean isSettled(int vertex) {
+        return settled[vertex] == epoch;
+    }
+
+    /**
+     * Check if heap is empty.
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    /**
+     * Smallest key in heap
+     *
+     * @return Key or POSITIVE_INFINITY if heap is empty
+     */
+    public double minKey() {
+        return heapSize == 0 ? Double.POSITIVE_INFINITY : heapKey[0];
+    }
+
+    /**
+     * Start new search from vertex
+     *
+     * @param source Source vertex
+     */
+    public void addSource(int source) {
+        addSource(source, 0, 0);
+    }
+
+    /**
+     * Start new search from vertex with initial distance and heap key
+     *
+     * @param source   Source vertex
+     * @param distance Initial distance
+     * @param key      Initial key in heap
+     */
+    public void addSource(int source, double distance, double key) {
+        visited[source] = epoch;
+        distances[source] = distance;
+        tree[source] = -1;
+        addToHeap(source, key);
+    }
+
+    /**
+     * Relaxing edge
+     *
+     * @param from     From vertex
+     * @param to       To vertex
+     * @param distance New distance to vertex
+     * @return TRUE, if distance was changed
+     */
+    public boolean relax(int from, int to, double distance) {
+        return relax(from, to, distance, distance);
+    }
+
+    /**
+     * Relaxing edge, heap is ordered by key instead of distance
+     *
+     * @param from     From vertex
+     * @param to       To vertex
+     * @param distance New distance to vertex
+     * @param key      Key of vertex in heap
+     * @return TRUE, if distance was changed
+     */
+    public boolean relax(int from, int to, double distance, double key) {
+        if (settled[to] == epoch) {
+            return false;
+        }
+        if (visited[to] != epoch) {
+            // New vertex - add to heap
+            visited[to] = epoch;
+            distances[to] = distance;
+            tree[to] = from;
+            addToHeap(to, key);
+            return true;
+        }
+        if (distance < distances[to]) {
+            // Vertex already in heap
+            distances[to] = distance;
+            tree[to] = from;
+            heapKey[positions[to]] = key;
+            heapUp(positions[to]);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Extract from heap of vertex with minimum key and mark it as settled.
+     *
+     * @return Vertex
+     */
+    public int extractMin() {
+        int vertex = heapVertex[0];
+        settled[vertex] = epoch;
+        if (--heapSize > 0) {
+            heapVertex[0] = heapVertex[heapSize];
+            heapKey[0] = heapKey[heapSize];
+            positions[heapVertex[0]] = 0;
+            heapDown(0);
+        }
+        return vertex;
+    }
+
+    /**
+     * Copy distances of current run
+     *
+     * @param totalVertex Number of vertexes
+     * @return New array
+     */
+    public double[] copyDistances(int totalVertex) {
+        double[] result = new double[totalVertex];
+        for (int v = 0; v < totalVertex; v++) {
+            result[v] = distance(v);
+        }
+        return result;
+    }
+
+    /**
+     * Copy tree of current run
+     *
+     * @param totalVertex Number of vertexes
+     * @return New array
+     */
+    public int[] copyTree(int totalVertex) {
+        int[] result = new int[totalVertex];
+        for (int v = 0; v < totalVertex; v++) {
+            result[v] = previous(v);
+        }
+        return result;
+    }
+
+    /**
+     * Adding new item to heap.
+     *
+     * @param vertex Vertex
+     * @param key    Key
+     */
+    private void addToHeap(int vertex, double key) {
+        heapVertex[heapSize] = vertex;
+        heapKey[heapSize] = key;
+        positions[vertex] = heapSize;
+        heapUp(heapSize++);
+    }
+
+    /**
+     * Order of heap items: by key, then by vertex number
+     */
+    private static boolean less(double key1, int vertex1, double key2, int vertex2) {
+        return key1 < key2 || (key1 == key2 && vertex1 < vertex2);
+    }
+
+    /**
+     * Dragging a heap element at a specified index up the heap
+     *
+     * @param i Index of element
+     */
+    private void heapUp(int i) {
+        int vertex = heapVertex[i];
+        double key = heapKey[i];
+        while (i > 0) {
+            int prev = (i - 1) >>> 1;
+            if (!less(key, vertex, heapKey[prev], heapVertex[prev])) {
+                break;
+            }
+            heapVertex[i] = heapVertex[prev];
+            heapKey[i] = heapKey[prev];
+            positions[heapVertex[i]] = i;
+            i = prev;
+        }
+        heapVertex[i] = vertex;
+        heapKey[i] = key;
+        positions[vertex] = i;
+    }
+
+    /**
+     * Dragging a heap element with a specified index down the heap
+     *
+     * @param i Index of element
+     */
+    private void heapDown(int i) {
+        int vertex = heapVertex[i];
+        double key = heapKey[i];
+        int next = 2 * i + 1;
+        while (next < heapSize) {
+            if (next + 1 < heapSize && less(heapKey[next + 1], heapVertex[next + 1], heapKey[next], heapVertex[next])) {
+                next++;
+            }
+            if (!less(heapKey[next], heapVertex[next], key, vertex)) {
+                break;
+            }
+            heapVertex[i] = heapVertex[next];
+            heapKey[i] = heapKey[next];
+            positions[heapVertex[i]] = i;
+            i = next;
+            next = 2 * i + 1;
+        }
+        heapVertex[i] = vertex;
+        heapKey[i] = key;
+        positions[vertex] = i;
+    }
+}
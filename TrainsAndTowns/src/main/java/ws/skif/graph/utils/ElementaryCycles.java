@@ -0,0 +1,469 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Search of all elementary cycles (Johnson, 1975) in O((n + m)(c + 1)) for c cycles.
+ * Each cycle is found once from its least vertex, inside the strongly connected component
+ * of this vertex among vertexes not less than it. After the start vertex is processed it is removed
+ * and only its component is split again.
+ * Search and split are iterative over arrays of int, so depth of the call stack does not depend on graph.
+ * Like adjacency of the original Graph, only edges with positive weight are followed:
+ * negative and zero edges and placeholders for missing edges are skipped.
+ * Parallel edges give the same cycle several times.
+ * Instance is not thread-safe.
+ */
+public class ElementaryCycles {
+
+    /**
+     * Receiver of found cycles
+     */
+    public interface CycleVisitor {
+        /**
+         * Cycle is found
+         *
+         * @param cycle  Vertexes of cycle from the least one, which is repeated at the end.
+         *               Array is reused for next cycles and must not be kept
+         * @param length Number of used items of array
+         * @return true to continue search, false to stop it
+         */
+        boolean visit(int[] cycle, int length);
+    }
+
+    private final CsrGraph graph;
+    private final int totalVertex;
+
+    private final int[] members;            // Vertexes grouped by component
+    private final int[] where;              // Position of vertex in members
+    private final int[] component;          // Component of vertex: start of its group in members, -1 if removed
+    private final int[] componentEnd;       // End of group in members, by start of the group
+    private final int[] work;               // Copy of group while it is split
+    private final int[] index;              // Order of visit while group is split, MAX_VALUE after it
+    private final int[] low;                // Least order reachable from vertex while group is split
+
+    private final int[] path;               // Current path of search, the first vertex is repeated for cycle
+    private final int[] rotated;            // Cycle of bounded search from its least vertex
+    private final int[] cursor;             // Next edge of each vertex of path
+    private final int[] stack;              // Stack of component split or of unblocked vertexes
+    private final boolean[] found;          // Cycle was found through vertex of path
+    private final boolean[] blocked;        // Vertex can not reach start vertex now
+    private final int[] blockedHead;        // First node of vertexes to unblock together with vertex, -1 if none
+    private int[] nodeVertex = new int[16]; // Vertex of node
+    private int[] nodeNext = new int[16];   // Next node of the same list or of free list
+    private int nodeCount;                  // Used nodes
+    private int free;                       // First free node, -1 if none
+
+    /**
+     * Constructor
+     *
+     * @param graph Selected graph
+     */
+    public ElementaryCycles(Graph graph) {
+        this(graph.compile());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param graph Selected graph
+     */
+    public ElementaryCycles(CsrGraph graph) {
+        this.graph = graph;
+        totalVertex = graph.getCount();
+
+        members = new int[totalVertex];
+        where = new int[totalVertex];
+        component = new int[totalVertex];
+        componentEnd = new int[totalVertex];
+        work = new int[totalVertex];
+        index = new int[totalVertex];
+        low = new int[totalVertex];
+
+        path = new int[totalVertex + 1];
+        rotated = new int[totalVertex + 1];
+        cursor = new int[totalVertex];
+        stack = new int[totalVertex];
+        found = new boolean[totalVertex];
+        blocked = new boolean[totalVertex];
+        blockedHead = new int[totalVertex];
+    }
+
+    /**
+     * List of all cycles, each one starts from its least vertex and ends with it
+     *
+     * @return
+     */
+    public List<List<Integer>> findAllCycles() {
+        List<List<Integer>> result = new ArrayList<>();
+        findAllCycles((cycle, length) -> {
+            List<Integer> list = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                list.add(cycle[i]);
+            }
+            result.add(list);
+            return true;
+        });
+        return result;
+    }
+
+    /**
+     * Pass all cycles to visitor, in order of their least vertexes.
+     * Cycles are not kept
+     *
+     * @param visitor
+     */
+    public void findAllCycles(CycleVisitor visitor) {
+        search(-1, visitor);
+    }
+
+    /**
+     * Pass cycles which may go through vertex to visitor, in order of their least vertexes.
+     * Only components with the vertex are searched and search stops after cycles starting from the vertex,
+     * visitor still has to check that the vertex is in cycle.
+     *
+     * @param vertex  Vertex of cycles
+     * @param visitor
+     * @throws IllegalArgumentException for invalid vertex
+     */
+    public void findCycles(int vertex, CycleVisitor visitor) {
+        if (vertex < 0 || vertex >= totalVertex) {
+            throw new IllegalArgumentException("Invalid vertex: " + vertex);
+        }
+        search(vertex, visitor);
+    }
+
+    /**
+     * Pass cycles through vertex with at most maxEdges edges to visitor, each cycle once.
+     * Blocking of Johnson search is not valid with bound of length, so bounded search is plain
+     * search from the vertex limited by depth, O(d^maxEdges) for out-degree d, which is fast for short cycles.
+     * Cycles start from their least vertex like in search without bound, but are not ordered.
+     *
+     * @param vertex   Vertex of cycles
+     * @param maxEdges Maximum number of edges in cycle, -1 without bound
+     * @param visitor
+     * @throws IllegalArgumentException for invalid vertex
+     */
+    public void findCycles(int vertex, int maxEdges, CycleVisitor visitor) {
+        if (maxEdges == -1) {
+            findCycles(vertex, visitor);
+            return;
+        }
+        if (vertex < 0 || vertex >= totalVertex) {
+            throw new IllegalArgumentException("Invalid vertex: " + vertex);
+        }
+
+        Arrays.fill(blocked, false);
+        int depth = 0;
+        path[depth] = vertex;
+        cursor[depth++] = graph.edgeStart(vertex);
+        blocked[vertex] = true;
+
+        // Path of depth vertexes has depth - 1 edges, closing edge makes depth edges
+        while (depth > 0) {
+            int v = path[depth - 1];
+            if (depth <= maxEdges && cursor[depth - 1] < graph.edgeEnd(v)) {
+                int e = cursor[depth - 1]++;
+                int w = graph.getTargets(v)[e];
+                if (!isCycleEdge(graph.getWeights(v)[e])) {
+                    continue;
+                }
+                if (w == vertex) {
+                    if (!visitor.visit(rotated, rotate(depth))) {
+                        return;
+                    }
+                } else if (!blocked[w] && depth < maxEdges) {
+                    path[depth] = w;
+                    cursor[depth++] = graph.edgeStart(w);
+                    blocked[w] = true;
+                }
+                continue;
+            }
+            depth--;
+            blocked[v] = false;
+        }
+    }
+
+    /**
+     * Copy cycle of current path to rotated array from its least vertex
+     *
+     * @param depth Number of vertexes in path
+     * @return Length of cycle with repeated first vertex
+     */
+    private int rotate(int depth) {
+        int least = 0;
+        for (int i = 1; i < depth; i++) {
+            if (path[i] < path[least]) {
+                least = i;
+            }
+        }
+        for (int i = 0; i < depth; i++) {
+            rotated[i] = path[(least + i) % depth];
+        }
+        rotated[depth] = rotated[0];
+        return depth + 1;
+    }
+
+    /**
+     * Johnson search from each start vertex
+     *
+     * @param vertex  Vertex of cycles or -1 for all cycles
+     * @param visitor
+     */
+    private void search(int vertex, CycleVisitor visitor) {
+        if (totalVertex == 0) {
+            return;
+        }
+        for (int v = 0; v < totalVertex; v++) {
+            members[v] = v;
+            where[v] = v;
+            component[v] = 0;
+        }
+        split(0, totalVertex);
+
+        Arrays.fill(blockedHead, -1);
+        nodeCount = 0;
+        free = -1;
+        // Cycles through vertex have least vertex not greater than it, in the same component
+        int last = vertex == -1 ? totalVertex - 1 : vertex;
+        for (int s = 0; s <= last; s++) {
+            if ((vertex == -1 || component[s] == component[vertex]) && !circuits(s, visitor)) {
+                return;
+            }
+            remove(s);
+        }
+    }
+
+    /**
+     * Search cycles through start vertex inside its component
+     *
+     * @param start
+     * @param visitor
+     * @return false if visitor stopped search
+     */
+    private boolean circuits(int start, CycleVisitor visitor) {
+        int label = component[start];
+        for (int i = label; i < componentEnd[label]; i++) {
+            int v = members[i];
+            blocked[v] = false;
+            clearBlocked(v);
+        }
+
+        int depth = 0;
+        path[depth] = start;
+        cursor[depth] = graph.edgeStart(start);
+        found[depth++] = false;
+        blocked[start] = true;
+
+        while (depth > 0) {
+            int v = path[depth - 1];
+            if (cursor[depth - 1] < graph.edgeEnd(v)) {
+                int e = cursor[depth - 1]++;
+                int w = graph.getTargets(v)[e];
+                if (!isCycleEdge(graph.getWeights(v)[e]) || component[w] != label) {
+                    continue;
+                }
+                if (w == start) {
+                    path[depth] = start;
+                    if (!visitor.visit(path, depth + 1)) {
+                        return false;
+                    }
+                    found[depth - 1] = true;
+                } else if (!blocked[w]) {
+                    path[depth] = w;
+                    cursor[depth] = graph.edgeStart(w);
+                    found[depth++] = false;
+                    blocked[w] = true;
+                }
+                continue;
+            }
+
+            depth--;
+            if (found[depth]) {
+                unblock(v);
+                if (depth > 0) {
+                    found[depth - 1] = true;
+                }
+            } else {
+                // Vertex stays blocked until one of its successors is unblocked
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                    int w = graph.getTargets(v)[e];
+                    if (isCycleEdge(graph.getWeights(v)[e]) && component[w] == label) {
+                        addBlocked(w, v);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unblock vertex and all vertexes blocked by it
+     */
+    private void unblock(int vertex) {
+        int top = 0;
+        stack[top++] = vertex;
+        blocked[vertex] = false;
+        while (top > 0) {
+            int v = stack[--top];
+            int node = blockedHead[v];
+            while (node != -1) {
+                int w = nodeVertex[node];
+                int next = nodeNext[node];
+                nodeNext[node] = free;
+                free = node;
+                node = next;
+                if (blocked[w]) {
+                    blocked[w] = false;
+                    stack[top++] = w;
+                }
+            }
+            blockedHead[v] = -1;
+        }
+    }
+
+    /**
+     * Add vertex to the list of vertexes unblocked with the given one, if it is not there
+     */
+    private void addBlocked(int vertex, int blockedVertex) {
+        for (int node = blockedHead[vertex]; node != -1; node = nodeNext[node]) {
+            if (nodeVertex[node] == blockedVertex) {
+                return;
+            }
+        }
+
+        int node = free;
+        if (node != -1) {
+            free = nodeNext[node];
+        } else {
+            if (nodeCount == nodeVertex.length) {
+                nodeVertex = Arrays.copyOf(nodeVertex, nodeCount * 2);
+                nodeNext = Arrays.copyOf(nodeNext, nodeCount * 2);
+            }
+            node = nodeCount++;
+        }
+        nodeVertex[node] = blockedVertex;
+        nodeNext[node] = blockedHead[vertex];
+        blockedHead[vertex] = node;
+    }
+
+    private void clearBlocked(int vertex) {
+        int node = blockedHead[vertex];
+        while (node != -1) {
+            int next = nodeNext[node];
+            nodeNext[node] = free;
+            free = node;
+            node = next;
+        }
+        blockedHead[vertex] = -1;
+    }
+
+    /**
+     * Remove processed start vertex and split the rest of its component
+     */
+    private void remove(int vertex) {
+        int label = component[vertex];
+        int end = componentEnd[label];
+
+        // Move vertex to the start of its group
+        int position = where[vertex];
+        int first = members[label];
+        members[position] = first;
+        where[first] = position;
+        members[label] = vertex;
+        where[vertex] = label;
+        component[vertex] = -1;
+
+        if (end - label > 1) {
+            for (int i = label + 1; i < end; i++) {
+                component[members[i]] = label + 1;
+            }
+            split(label + 1, end);
+        }
+    }
+
+    /**
+     * Split group of vertexes into strongly connected components (Tarjan), O(n + m) of the group.
+     * Vertexes of group must have component equal to from, components are written back to the group.
+     *
+     * @param from Start of group in members
+     * @param to   End of group in members
+     */
+    private void split(int from, int to) {
+        int label = from;
+        System.arraycopy(members, from, work, from, to - from);
+        for (int i = from; i < to; i++) {
+            index[members[i]] = -1;
+        }
+
+        int counter = 0;
+        int position = from;
+        for (int i = from; i < to; i++) {
+            int root = work[i];
+            if (index[root] != -1) {
+                continue;
+            }
+
+            int depth = 0;
+            int top = 0;
+            index[root] = low[root] = counter++;
+            stack[top++] = root;
+            path[depth] = root;
+            cursor[depth++] = graph.edgeStart(root);
+
+            while (depth > 0) {
+                int v = path[depth - 1];
+                if (cursor[depth - 1] < graph.edgeEnd(v)) {
+                    int e = cursor[depth - 1]++;
+                    int w = graph.getTargets(v)[e];
+                    if (!isCycleEdge(graph.getWeights(v)[e]) || component[w] != label) {
+                        continue;
+                    }
+                    if (index[w] == -1) {
+                        index[w] = low[w] = counter++;
+                        stack[top++] = w;
+                        path[depth] = w;
+                        cursor[depth++] = graph.edgeStart(w);
+                    } else if (index[w] < low[v]) {
+                        // Vertexes of finished components have MAX_VALUE and are skipped here
+                        low[v] = index[w];
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0 && low[v] < low[path[depth - 1]]) {
+                    low[path[depth - 1]] = low[v];
+                }
+                if (low[v] == index[v]) {
+                    int start = position;
+                    int u;
+                    do {
+                        u = stack[--top];
+                        index[u] = Integer.MAX_VALUE;
+                        members[position] = u;
+                        where[u] = position++;
+                    } while (u != v);
+                    for (int k = start; k < position; k++) {
+                        component[members[k]] = start;
+                    }
+                    componentEnd[start] = position;
+                }
+            }
+        }
+    }
+
+    /**
+     * Edge is followed by search: positive weight, not a placeholder of missing edge
+     *
+     * @param weight
+     * @return
+     */
+    private static boolean isCycleEdge(double weight) {
+        return weight > 0 && weight != Graph.NO_EDGE;
+    }
+}
@@ -0,0 +1,565 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.StationIndex;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary snapshot of graph and computed paths, so restart does not parse text files
+ * and does not run the Johnson algo again.
+ * File is read by memory-mapped windows, arrays are copied from file in bulk without parsing.
+ * <pre>
+ * header     magic, version, flags, vertexes, edges, strategy
+ * graph      offsets, targets, weights, coordinates if FLAG_COORDINATES
+ * stations   starts of names and UTF-8 names of vertexes if FLAG_STATIONS, since version 2
+ * potentials potentials of vertexes and negative cycle if FLAG_POTENTIALS
+ * paths      distance, total routes and direction matrixes by rows if FLAG_PATHS
+ * cycles     number of cycles, then length and vertexes of each cycle if FLAG_CYCLES, only read:
+ *            cycles are searched for each TRIPS request, listing all of them may not fit in memory
+ * </pre>
+ * All numbers are little-endian. Snapshots of version 1 are read too, they have no stations.
+ */
+public class GraphSnapshot {
+
+    private static final int MAGIC = 0x54544731;            // "TTG1"
+    private static final int VERSION = 2;
+    private static final int FLAG_NEGATIVE_EDGE = 1;        // Graph has negative edges
+    private static final int FLAG_COORDINATES = 2;          // Coordinates of vertexes are stored
+    private static final int FLAG_POTENTIALS = 4;           // Potentials and strategy are stored
+    private static final int FLAG_PATHS = 8;                // Matrixes of eager mode are stored
+    private static final int FLAG_CYCLES = 16;              // List of cycles is stored
+    private static final int FLAG_STATIONS = 32;            // Names of vertexes are stored
+    private static final long WINDOW = 1L << 30;            // Maximum size of mapped window
+    private static final int BUFFER_SIZE = 1 << 20;         // Size of write buffer
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Write graph only
+     *
+     * @param graph
+     * @param fileName
+     * @throws IOException
+     */
+    public static void writeGraph(CsrGraph graph, String fileName) throws IOException {
+        try (Output out = new Output(fileName)) {
+            writeHeader(out, graph, 0, null);
+            writeGraph(out, graph);
+        }
+    }
+
+    /**
+     * Write graph with computed state: potentials and matrixes in eager mode.
+     * Cycles are not written, they are searched for each TRIPS request.
+     *
+     * @param utils
+     * @param fileName
+     * @throws IOException
+     */
+    public static void write(GraphUtils utils, String fileName) throws IOException {
+        write(utils, null, fileName);
+    }
+
+    /**
+     * Write graph with computed state and names of stations, see write(GraphUtils, String)
+     *
+     * @param utils
+     * @param stations Names of all vertexes, null if vertexes have no names
+     * @param fileName
+     * @throws IOException
+     * @throws IllegalArgumentException if number of stations differs from number of vertexes
+     */
+    public static void write(GraphUtils utils, StationIndex stations, String fileName) throws IOException {
+        CsrGraph graph = utils.getGraph();
+        if (stations != null && stations.size() != graph.getCount()) {
+            throw new IllegalArgumentException("Stations: " + stations.size() + ", vertexes: " + graph.getCount());
+        }
+        int flags = FLAG_POTENTIALS;
+        if (!utils.isLazy()) {
+            flags |= FLAG_PATHS;
+        }
+        if (stations != null) {
+            flags |= FLAG_STATIONS;
+        }
+
+        try (Output out = new Output(fileName)) {
+            writeHeader(out, graph, flags, utils.getStrategy());
+            writeGraph(out, graph);
+            if (stations != null) {
+                out.writeInts(stations.getStarts());
+                out.writeBytes(stations.getNames());
+            }
+
+            out.writeDoubles(utils.getPotentials());
+            writeList(out, utils.getNegativeCycle());
+
+            if (!utils.isLazy()) {
+                for (double[] row : utils.getPaths()) {
+                    out.writeDoubles(row);
+                }
+                for (double[] row : utils.getCorrectedPaths()) {
+                    out.writeDoubles(row);
+                }
+                for (int[] row : utils.getDirections()) {
+                    out.writeInts(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read graph from snapshot, computed state is skipped
+     *
+     * @param fileName
+     * @return Graph
+     * @throws IOException
+     */
+    public static CsrGraph readGraph(String fileName) throws IOException {
+        try (Input in = new Input(fileName)) {
+            return readGraph(in, readHeader(in, fileName));
+        }
+    }
+
+    /**
+     * Read graph and computed state for eager mode.
+     * Matrixes are computed only if snapshot does not have them.
+     *
+     * @param fileName
+     * @return Utils ready for queries
+     * @throws IOException
+     */
+    public static GraphUtils read(String fileName) throws IOException {
+        return read(fileName, 0, true, null);
+    }
+
+    /**
+     * Read graph and computed state for eager mode, names of vertexes are added to stations
+     *
+     * @param fileName
+     * @param stations Empty index for names, it stays empty if snapshot has no names
+     * @return Utils ready for queries
+     * @throws IOException
+     */
+    public static GraphUtils read(String fileName, StationIndex stations) throws IOException {
+        return read(fileName, 0, true, stations);
+    }
+
+    /**
+     * Read graph and computed state.
+     * Snapshot with matrixes gives eager mode, otherwise lazy mode with given cache size is used.
+     * Potentials are computed only if snapshot does not have them.
+     *
+     * @param fileName
+     * @param maxTrees Maximum number of trees kept in memory in lazy mode
+     * @return Utils ready for queries
+     * @throws IOException
+     */
+    public static GraphUtils read(String fileName, int maxTrees) throws IOException {
+        return read(fileName, maxTrees, false, null);
+    }
+
+    /**
+     * Read graph and computed state, see read(String, int), names of vertexes are added to stations
+     *
+     * @param fileName
+     * @param maxTrees Maximum number of trees kept in memory in lazy mode
+     * @param stations Empty index for names, it stays empty if snapshot has no names
+     * @return Utils ready for queries
+     * @throws IOException
+     */
+    public static GraphUtils read(String fileName, int maxTrees, StationIndex stations) throws IOException {
+        return read(fileName, maxTrees, false, stations);
+    }
+
+    private static GraphUtils read(String fileName, int maxTrees, boolean eager, StationIndex stations)
+            throws IOException {
+        if (stations != null && stations.size() != 0) {
+            throw new IllegalArgumentException("Index of stations is not empty");
+        }
+        try (Input in = new Input(fileName)) {
+            int[] header = readHeader(in, fileName);
+            int flags = header[0];
+            CsrGraph graph = readGraph(in, header);
+            if ((flags & FLAG_STATIONS) != 0) {
+                readStations(in, graph.getCount(), stations);
+            }
+            if (eager && (flags & FLAG_PATHS) == 0) {
+                return new GraphUtils(graph);
+            }
+            if ((flags & FLAG_POTENTIALS) == 0) {
+                return new GraphUtils(graph, maxTrees);
+            }
+
+            if (header[3] == -1) {
+                throw new IOException("Snapshot has potentials without strategy");
+            }
+            GraphUtils.Strategy strategy = GraphUtils.Strategy.values()[header[3]];
+            double[] potentials = in.readDoubles(graph.getCount());
+            List<Integer> negativeCycle = readList(in);
+
+            double[][] paths = null;
+            double[][] correctedPaths = null;
+            int[][] directions = null;
+            if ((flags & FLAG_PATHS) != 0) {
+                int totalVertex = graph.getCount();
+                paths = new double[totalVertex][];
+                correctedPaths = new double[totalVertex][];
+                directions = new int[totalVertex][];
+                for (int i = 0; i < totalVertex; i++) {
+                    paths[i] = in.readDoubles(totalVertex);
+                }
+                for (int i = 0; i < totalVertex; i++) {
+                    correctedPaths[i] = in.readDoubles(totalVertex);
+                }
+                for (int i = 0; i < totalVertex; i++) {
+                    directions[i] = in.readInts(totalVertex);
+                }
+            }
+
+            List<List<Integer>> cycles = null;
+            if ((flags & FLAG_CYCLES) != 0) {
+                int count = in.readInt();
+                in.require(count, 4);
+                cycles = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    cycles.add(readList(in));
+                }
+            }
+
+            return new GraphUtils(graph, strategy, potentials, negativeCycle, paths, correctedPaths, directions,
+                                  cycles, paths == null ? new ShortestPathCache(maxTrees) : null);
+        }
+    }
+
+    private static void writeHeader(Output out, CsrGraph graph, int flags, GraphUtils.Strategy strategy)
+            throws IOException {
+        if (graph.isNegativeEdge()) {
+            flags |= FLAG_NEGATIVE_EDGE;
+        }
+        if (graph.hasCoordinates()) {
+            flags |= FLAG_COORDINATES;
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(flags);
+        out.writeInt(graph.getCount());
+        out.writeInt(graph.getEdgeCount());
+        out.writeInt(strategy == null ? -1 : strategy.ordinal());
+    }
+
+    /**
+     * Read and check header
+     *
+     * @return Flags, number of vertexes, number of edges, strategy
+     */
+    private static int[] readHeader(Input in, String fileName) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a graph snapshot: " + fileName);
+        }
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        int[] header = {in.readInt(), in.readInt(), in.readInt(), in.readInt()};
+        // Offsets, targets and weights must fit in the rest of file
+        if (header[1] < 0 || header[2] < 0 || (header[1] + 1L) * 4 + header[2] * 12L > in.remaining()) {
+            throw new IOException("Invalid snapshot header: " + header[1] + " vertexes, " + header[2] + " edges");
+        }
+        if (header[3] < -1 || header[3] >= GraphUtils.Strategy.values().length) {
+            throw new IOException("Invalid snapshot strategy: " + header[3]);
+        }
+        return header;
+    }
+
+    private static void writeGraph(Output out, CsrGraph graph) throws IOException {
+        // Edges are written by vertexes, changed graph is not copied to flat arrays
+        int totalVertex = graph.getCount();
+        int offset = 0;
+        out.writeInt(offset);
+        for (int v = 0; v < totalVertex; v++) {
+            offset += graph.edgeEnd(v) - graph.edgeStart(v);
+            out.writeInt(offset);
+        }
+        for (int v = 0; v < totalVertex; v++) {
+            out.writeInts(graph.getTargets(v), graph.edgeStart(v), graph.edgeEnd(v));
+        }
+        for (int v = 0; v < totalVertex; v++) {
+            out.writeDoubles(graph.getWeights(v), graph.edgeStart(v), graph.edgeEnd(v));
+        }
+        if (graph.hasCoordinates()) {
+            out.writeDoubles(graph.getLatitudes());
+            out.writeDoubles(graph.getLongitudes());
+        }
+    }
+
+    private static CsrGraph readGraph(Input in, int[] header) throws IOException {
+        int flags = header[0];
+        int totalVertex = header[1];
+        int edgeCount = header[2];
+        int[] offsets = in.readInts(totalVertex + 1);
+        int[] targets = in.readInts(edgeCount);
+        double[] weights = in.readDoubles(edgeCount);
+        double[] latitudes = null;
+        double[] longitudes = null;
+        if ((flags & FLAG_COORDINATES) != 0) {
+            latitudes = in.readDoubles(totalVertex);
+            longitudes = in.readDoubles(totalVertex);
+        }
+        return new CsrGraph(offsets, targets, weights, (flags & FLAG_NEGATIVE_EDGE) != 0, latitudes, longitudes);
+    }
+
+    /**
+     * Read names of vertexes in the order of indexes
+     *
+     * @param stations Index for names, null to skip them
+     */
+    private static void readStations(Input in, int totalVertex, StationIndex stations) throws IOException {
+        int[] starts = in.readInts(totalVertex + 1);
+        if (starts[0] != 0 || starts[totalVertex] < 0) {
+            throw new IOException("Invalid station names");
+        }
+        byte[] names = in.readBytes(starts[totalVertex]);
+        if (stations == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(names);
+        for (int i = 0; i < totalVertex; i++) {
+            if (starts[i + 1] <= starts[i] || starts[i + 1] > names.length
+                    || stations.intern(buffer, starts[i], starts[i + 1]) != i) {
+                throw new IOException("Invalid station names");
+            }
+        }
+    }
+
+    /**
+     * List of vertexes: length, -1 for null, then vertexes
+     */
+    private static void writeList(Output out, List<Integer> list) throws IOException {
+        if (list == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(list.size());
+        for (int vertex : list) {
+            out.writeInt(vertex);
+        }
+    }
+
+    private static List<Integer> readList(Input in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<Integer> list = new ArrayList<>(size);
+        for (int vertex : in.readInts(size)) {
+            list.add(vertex);
+        }
+        return list;
+    }
+
+    /**
+     * Buffered writer of little-endian numbers
+     */
+    private static class Output implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        private Output(String fileName) throws IOException {
+            channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        private void writeInts(int[] values) throws IOException {
+            writeInts(values, 0, values.length);
+        }
+
+        private void writeInts(int[] values, int from, int to) throws IOException {
+            int done = from;
+            while (done < to) {
+                ensure(4);
+                int count = Math.min(to - done, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, done, count);
+                ((Buffer) buffer).position(buffer.position() + count * 4);
+                done += count;
+            }
+        }
+
+        private void writeDoubles(double[] values) throws IOException {
+            writeDoubles(values, 0, values.length);
+        }
+
+        private void writeDoubles(double[] values, int from, int to) throws IOException {
+            int done = from;
+            while (done < to) {
+                ensure(8);
+                int count = Math.min(to - done, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, done, count);
+                ((Buffer) buffer).position(buffer.position() + count * 8);
+                done += count;
+            }
+        }
+
+        private void writeBytes(byte[] values) throws IOException {
+            int done = 0;
+            while (done < values.length) {
+                ensure(1);
+                int count = Math.min(values.length - done, buffer.remaining());
+                buffer.put(values, done, count);
+                done += count;
+            }
+        }
+
+        private void ensure(int size) throws IOException {
+            if (buffer.remaining() < size) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            // Buffer methods, ByteBuffer overrides of JDK 9+ are missing on Java 8
+            ((Buffer) buffer).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            ((Buffer) buffer).clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reader of little-endian numbers from memory-mapped windows of file
+     */
+    private static class Input implements AutoCloseable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final long size;            // Size of file
+        private long windowStart;           // Position of current window in file
+        private ByteBuffer buffer;          // Current window
+
+        private Input(String fileName) throws IOException {
+            file = new RandomAccessFile(fileName, "r");
+            channel = file.getChannel();
+            size = channel.size();
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private int readInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        private int[] readInts(int count) throws IOException {
+            require(count, 4);
+            int[] values = new int[count];
+            int done = 0;
+            while (done < count) {
+                ensure(4);
+                int n = Math.min(count - done, buffer.remaining() / 4);
+                buffer.asIntBuffer().get(values, done, n);
+                ((Buffer) buffer).position(buffer.position() + n * 4);
+                done += n;
+            }
+            return values;
+        }
+
+        private double[] readDoubles(int count) throws IOException {
+            require(count, 8);
+            double[] values = new double[count];
+            int done = 0;
+            while (done < count) {
+                ensure(8);
+                int n = Math.min(count - done, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().get(values, done, n);
+                ((Buffer) buffer).position(buffer.position() + n * 8);
+                done += n;
+            }
+            return values;
+        }
+
+        private byte[] readBytes(int count) throws IOException {
+            require(count, 1);
+            byte[] values = new byte[count];
+            int done = 0;
+            while (done < count) {
+                ensure(1);
+                int n = Math.min(count - done, buffer.remaining());
+                buffer.get(values, done, n);
+                done += n;
+            }
+            return values;
+        }
+
+        /**
+         * Number of bytes after current position
+         */
+        private long remaining() {
+            return size - windowStart - buffer.position();
+        }
+
+        /**
+         * Check count read from file before allocating an array for it
+         *
+         * @param count Number of values
+         * @param bytes Size of value
+         * @throws IOException if count is negative or values do not fit in the rest of file
+         */
+        private void require(long count, int bytes) throws IOException {
+            if (count < 0 || count * bytes > remaining()) {
+                throw new IOException("Snapshot is truncated or invalid: " + count + " values");
+            }
+        }
+
+        /**
+         * Move window, if current one has less than given number of bytes
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            long position = windowStart + buffer.position();
+            if (size - position < bytes) {
+                throw new IOException("Snapshot is truncated");
+            }
+            map(position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                channel.close();
+            } finally {
+                file.close();
+            }
+        }
+    }
+}
@@ -4,12 +4,38 @@ package ws.skif.graph.utils;
 import ws.skif.graph.models.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 public class GraphUtils {
+    private static final int PARALLEL_THRESHOLD = 64;   // Smaller graphs are computed in current thread
+    private static final long MAX_CACHED_CYCLES = 1 << 22;  // Vertexes of cycles kept for TRIPS without stops
+
+    /**
+     * How minimal paths are computed
+     */
+    public enum Strategy {
+        DIJKSTRA,                           // No negative edges, Dijkstra algo on source graph
+        JOHNSON                             // Edges are reweighted by Bellman-Ford potentials first
+    }
+
     private double[][] paths;               // Distance matrix
     private int[][] directions;             // Direction Matrix
     private double[][] correctedPaths;      // Total routes
-    private List<List<Integer>> cycles;
+    private List<List<Integer>> cycles;     // Cycles restored from snapshot, null if they are searched per request
+
+    private CsrGraph graph;                 // Source graph
+    private CsrGraph reweighted;            // Graph with non negative edges, built for point-to-point queries
+    private double[] potentials;            // Potentials of vertexes used for reweighting
+    private List<Integer> negativeCycle;    // Cycle with negative length, found by Bellman-Ford algo
+    private Strategy strategy;              // Chosen way of computing
+
+    private volatile Heuristic heuristic;   // Lower bound for point-to-point queries, may be null
+    private volatile ContractionHierarchy hierarchy; // Hierarchy for point-to-point queries, may be null
+
+    private boolean lazy;                   // Trees are computed on demand
+    private ExecutorService executor;       // Executor for Dijkstra runs in eager mode, may be null
+    private ShortestPathCache cache;        // Computed trees in lazy mode
+    private CycleCache cycleCache;          // Cycles of TRIPS requests, created on the first one
 
     /**
      * Constuctor. Run Johnson algo
@@ -17,7 +43,250 @@ public class GraphUtils {
      * @param graph
      */
     public GraphUtils(Graph graph) {
-        johnson(graph);
+        this(graph.compile());
+    }
+
+    /**
+     * Constuctor. Run Johnson algo on compiled graph, Dijkstra runs use the common fork-join pool
+     *
+     * @param graph
+     */
+    public GraphUtils(CsrGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constuctor. Run Johnson algo, Dijkstra runs use given executor
+     *
+     * @param graph
+     * @param executor Executor for Dijkstra runs, null to run in current thread. Executor is not shut down
+     */
+    public GraphUtils(Graph graph, ExecutorService executor) {
+        this(graph.compile(), executor);
+    }
+
+    /**
+     * Constuctor. Run Johnson algo on compiled graph, Dijkstra runs use given executor
+     *
+     * @param graph
+     * @param executor Executor for Dijkstra runs, null to run in current thread. Executor is not shut down
+     */
+    public GraphUtils(CsrGraph graph, ExecutorService executor) {
+        johnson(graph, executor);
+    }
+
+    /**
+     * Constuctor for lazy mode.
+     * Only potentials of vertexes are computed here, minimal paths from each vertex
+     * are computed on first request and kept for the last maxTrees vertexes.
+     *
+     * @param graph
+     * @param maxTrees Maximum number of trees kept in memory
+     */
+    public GraphUtils(Graph graph, int maxTrees) {
+        this(graph.compile(), maxTrees);
+    }
+
+    /**
+     * Constuctor for lazy mode on compiled graph.
+     *
+     * @param graph
+     * @param maxTrees Maximum number of trees kept in memory
+     */
+    public GraphUtils(CsrGraph graph, int maxTrees) {
+        this(graph, new ShortestPathCache(maxTrees));
+    }
+
+    /**
+     * Constuctor for lazy mode with given cache of trees.
+     *
+     * @param graph
+     * @param cache Cache of trees. Must not be shared with other graphs
+     */
+    public GraphUtils(Graph graph, ShortestPathCache cache) {
+        this(graph.compile(), cache);
+    }
+
+    /**
+     * Constuctor for lazy mode on compiled graph with given cache of trees.
+     *
+     * @param graph
+     * @param cache Cache of trees. Must not be shared with other graphs
+     */
+    public GraphUtils(CsrGraph graph, ShortestPathCache cache) {
+        lazy = true;
+        this.cache = cache;
+        computePotentials(graph);
+    }
+
+    /**
+     * Constructor for state restored from snapshot, nothing is computed.
+     *
+     * @param graph          Source graph
+     * @param strategy       Way of computing
+     * @param potentials     Potentials of vertexes
+     * @param negativeCycle  Cycle with negative length or null
+     * @param paths          Distance matrix, null for lazy mode
+     * @param correctedPaths Total routes, null for lazy mode
+     * @param directions     Direction matrix, null for lazy mode
+     * @param cycles         List of cycles, null to search them on each request
+     * @param cache          Cache of trees for lazy mode
+     */
+    GraphUtils(CsrGraph graph, Strategy strategy, double[] potentials, List<Integer> negativeCycle,
+               double[][] paths, double[][] correctedPaths, int[][] directions,
+               List<List<Integer>> cycles, ShortestPathCache cache) {
+        this.graph = graph;
+        this.strategy = strategy;
+        this.potentials = potentials;
+        this.negativeCycle = negativeCycle;
+        this.paths = paths;
+        this.correctedPaths = correctedPaths;
+        this.directions = directions;
+        this.cycles = cycles;
+        if (paths == null) {
+            lazy = true;
+            this.cache = cache;
+        }
+    }
+
+    /**
+     * Source graph
+     *
+     * @return
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Way of computing chosen for the graph
+     *
+     * @return
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Cycle with negative length.
+     * If graph has such cycle, minimal paths are not defined and computed lengths are not valid.
+     *
+     * @return List of vertexes, the first vertex is repeated at the end. Null, if there is no such cycle
+     */
+    public List<Integer> getNegativeCycle() {
+        return negativeCycle;
+    }
+
+    /**
+     * Potentials of vertexes, zero for graph without negative edges.
+     * Returned array is shared and must not be changed.
+     *
+     * @return
+     */
+    double[] getPotentials() {
+        return potentials;
+    }
+
+    /**
+     * Distance matrix with reweighted edge lengths, null in lazy mode
+     *
+     * @return
+     */
+    double[][] getPaths() {
+        return paths;
+    }
+
+    /**
+     * Matrix of minimal path lengths, null in lazy mode
+     *
+     * @return
+     */
+    double[][] getCorrectedPaths() {
+        return correctedPaths;
+    }
+
+    /**
+     * Matrix of previous vertexes of minimal paths, null in lazy mode
+     *
+     * @return
+     */
+    int[][] getDirections() {
+        return directions;
+    }
+
+    /**
+     * List of cycles restored from snapshot
+     *
+     * @return List of cycles or null
+     */
+    List<List<Integer>> getComputedCycles() {
+        return cycles;
+    }
+
+    /**
+     * Trees are computed on demand
+     *
+     * @return
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Cache of trees in lazy mode
+     *
+     * @return Cache or null in eager mode
+     */
+    public ShortestPathCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Minimal paths from vertex.
+     * In lazy mode tree is computed on first request.
+     *
+     * @param from From vertex
+     * @return
+     */
+    public ShortestPathTree getTree(int from) {
+        if (!lazy) {
+            return new ShortestPathTree(from, correctedPaths[from], directions[from]);
+        }
+
+        return cache.get(from, this::computeTree);
+    }
+
+    /**
+     * Compute minimal paths from vertex in lazy mode
+     *
+     * @param from From vertex
+     * @return
+     */
+    private ShortestPathTree computeTree(int from) {
+        Dijkstra dijkstra = newDijkstra();
+        return new ShortestPathTree(from, dijkstra.getDistances(from), dijkstra.getTree(from));
+    }
+
+    /**
+     * Dijkstra for source graph, edges are reweighted by potentials on the fly
+     *
+     * @return
+     */
+    private Dijkstra newDijkstra() {
+        return new Dijkstra(graph, strategy == Strategy.JOHNSON ? potentials : null);
+    }
+
+    /**
+     * Graph with edges reweighted by potentials, copy is built on first request.
+     * Point-to-point searches need it, all-pairs computation does not.
+     *
+     * @return
+     */
+    private synchronized CsrGraph getReweighted() {
+        if (reweighted == null) {
+            reweighted = strategy == Strategy.JOHNSON ? graph.reweight(potentials) : graph;
+        }
+        return reweighted;
     }
 
     /**
@@ -28,6 +297,9 @@ public class GraphUtils {
      * @return The length of the minimum path between the source and to vertex
      */
     public double getPathLength(int from, int to) {
+        if (lazy) {
+            return getTree(from).getDistance(to);
+        }
 
         return correctedPaths[from][to];
     }
@@ -40,6 +312,10 @@ public class GraphUtils {
      * @return An array of vertex numbers that specify the path from the source vertex to the target vertex
      */
     public LinkedList<Integer> getPath(int from, int to) {
+        if (lazy) {
+            return getTree(from).getPath(to);
+        }
+
         LinkedList<Integer> path = new LinkedList<>();
         do {
             path.addFirst(to);
@@ -49,7 +325,110 @@ public class GraphUtils {
     }
 
     /**
-     * The Traveling Salesman Problem
+     * Set lower bound of distances for point-to-point queries.
+     * With heuristic findPathLength and findPath use A* search.
+     *
+     * @param heuristic Heuristic for source graph or null to use bidirectional search
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Select landmarks and use them as heuristic for point-to-point queries.
+     * Landmarks can be saved with Landmarks.write() and set later by setHeuristic()
+     *
+     * @param count Number of landmarks
+     * @return Landmarks
+     */
+    public Landmarks useLandmarks(int count) {
+        Landmarks landmarks = Landmarks.select(graph, count);
+        setHeuristic(landmarks);
+        return landmarks;
+    }
+
+    /**
+     * Build contraction hierarchy and use it for point-to-point queries.
+     * Hierarchy is built for the reweighted graph, so it works for graphs with negative edges too.
+     *
+     * @return Hierarchy
+     */
+    public ContractionHierarchy useContractionHierarchy() {
+        CsrGraph reweighted = getReweighted();
+        if (reweighted.isNegativeEdge()) {
+            throw new IllegalStateException("Reweighted graph has negative edges");
+        }
+        ContractionHierarchy result = new ContractionHierarchy(reweighted);
+        hierarchy = result;
+        return result;
+    }
+
+    /**
+     * A* search for reweighted graph, if heuristic is set
+     *
+     * @return A* or null
+     */
+    private AStar getAStar() {
+        final Heuristic h = heuristic;
+        if (h == null) {
+            return null;
+        }
+        CsrGraph reweighted = getReweighted();
+        if (reweighted.isNegativeEdge()) {
+            return null;
+        }
+        // Edges are reweighted by potentials, estimate is shifted the same way
+        return new AStar(reweighted,
+                         (vertex, target) -> h.estimate(vertex, target) + potentials[vertex] - potentials[target]);
+    }
+
+    /**
+     * The length of the minimum path between 2 vertexes without computed matrix or trees.
+     * Contraction hierarchy is used if built, then A* search if heuristic is set,
+     * otherwise bidirectional search. All stop as soon as the path is found.
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return The length of the minimum path between the source and to vertex
+     */
+    public double findPathLength(int from, int to) {
+        ContractionHierarchy ch = hierarchy;
+        AStar aStar = ch == null ? getAStar() : null;
+        double length = ch != null
+                ? ch.distance(from, to)
+                : aStar != null
+                ? aStar.distance(from, to)
+                : new BidirectionalDijkstra(getReweighted()).distance(from, to);
+
+        return length + potentials[to] - potentials[from];
+    }
+
+    /**
+     * Constructs the path of the minimum length between 2 vertexes without computed matrix or trees.
+     * Contraction hierarchy is used if built, then A* search if heuristic is set,
+     * otherwise bidirectional search. All stop as soon as the path is found.
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return An array of vertex numbers that specify the path from the source vertex to the target vertex
+     */
+    public LinkedList<Integer> findPath(int from, int to) {
+        ContractionHierarchy ch = hierarchy;
+        if (ch != null) {
+            return ch.getPath(from, to);
+        }
+        AStar aStar = getAStar();
+
+        return aStar != null
+                ? aStar.getPath(from, to)
+                : new BidirectionalDijkstra(getReweighted()).getPath(from, to);
+    }
+
+    /**
+     * The Traveling Salesman Problem.
+     * Cycles are streamed from the search, only cycles through start vertex are kept.
+     * Without limit of stops it searches all cycles of the component of start vertex,
+     * so such cycles are cached by start vertex while they fit MAX_CACHED_CYCLES.
      *
      * @param startVertex Start position
      * @param maxStops    Maximum stops. -1 to run without checks of this param
@@ -59,40 +438,65 @@ public class GraphUtils {
     public RouteList commisVoyageur(int startVertex, int maxStops, int maxLength) {
         RouteList result = new RouteList();
 
-        // Seek all routes cycles with start point
-        for (List<Integer> route : cycles) {
-            boolean found = false;
-            for (Integer vertex : route) {
-                if (vertex == startVertex) {
-                    found = true;
-                    break;
+        if (cycles != null) {
+            for (List<Integer> route : cycles) {
+                int[] cycle = new int[route.size()];
+                for (int i = 0; i < cycle.length; i++) {
+                    cycle[i] = route.get(i);
                 }
+                addTrip(result, cycle, cycle.length, startVertex, maxStops, maxLength);
             }
+            return result;
+        }
 
-            // We found searched cycle in this operation
-            if (found) {
-                int i = -1;
-                List<Integer> list = new ArrayList<>();
-                double len = 0;
+        // Limit of stops bounds length of cycles, so long cycles are not searched at all
+        getCycleCache().forEachCycle(startVertex, maxStops, (cycle, length) -> {
+            addTrip(result, cycle, length, startVertex, maxStops, maxLength);
+            return true;
+        });
+        return result;
+    }
 
-                for (Integer vertex : route) {
-                    if (i > -1) {
-                        if (!list.contains(vertex)) {
-                            list.add(vertex);
-                        }
-                        len += getPathLength(i, vertex);
-                    }
-                    i = vertex;
-                }
+    private synchronized CycleCache getCycleCache() {
+        if (cycleCache == null) {
+            cycleCache = new CycleCache(graph, MAX_CACHED_CYCLES);
+        }
+        return cycleCache;
+    }
 
-                if ((maxStops == -1 || list.size() <= maxStops) &&
-                        (maxLength == -1 || len <= maxLength)) {
-                    result.getRoutes().add(new Route(list.size(), list, len));
-                }
+    /**
+     * Add cycle to routes if it goes through start vertex and fits limits
+     *
+     * @param result      Routes
+     * @param cycle       Vertexes of cycle, the first one is repeated at the end
+     * @param length      Number of vertexes in cycle array
+     * @param startVertex Start position
+     * @param maxStops    Maximum stops. -1 to run without checks of this param
+     * @param maxLength   Maximum length. -1 to run without checks of this param
+     */
+    private void addTrip(RouteList result, int[] cycle, int length, int startVertex, int maxStops, int maxLength) {
+        boolean found = false;
+        for (int i = 0; i < length; i++) {
+            if (cycle[i] == startVertex) {
+                found = true;
+                break;
             }
         }
+        if (!found || (maxStops != -1 && length - 1 > maxStops)) {
+            return;
+        }
 
-        return result;
+        // Vertexes of elementary cycle are distinct, except the first one repeated at the end
+        List<Integer> list = new ArrayList<>(length - 1);
+        double len = 0;
+        for (int i = 1; i < length; i++) {
+            list.add(cycle[i]);
+            len += getPathLength(cycle[i - 1], cycle[i]);
+        }
+
+        if (maxLength == -1 || len <= maxLength) {
+            result.getRoutes().add(new Route(list.size(), list, len));
+        }
     }
 
     /**
@@ -108,7 +512,7 @@ public class GraphUtils {
 
         List<Route> numberOfRoutes = new ArrayList<>();
 
-        for (int i = 0; i < paths.length; i++) {
+        for (int i = 0; i < graph.getCount(); i++) {
             if (i != sourceVertex
                     && getPathLength(sourceVertex, i) < Integer.MAX_VALUE
                     && getPathLength(sourceVertex, i) != 0
@@ -117,7 +521,7 @@ public class GraphUtils {
                 LinkedList<Integer> path = getPath(sourceVertex, i);
                 if (path.size() - 1 < hops) {
                     numberOfRoutes.add(new Route(path.size(), path, 0));
-                    for (int j = 0; j < paths.length; j++) {
+                    for (int j = 0; j < graph.getCount(); j++) {
                         if (i != j
                                 && j != dstVertex
                                 && getPathLength(sourceVertex, j) < Integer.MAX_VALUE
@@ -136,7 +540,7 @@ public class GraphUtils {
             }
         }
 
-        for (int i = 0; i < paths.length; i++) {
+        for (int i = 0; i < graph.getCount(); i++) {
             if (i != dstVertex && getPathLength(dstVertex, i) < Integer.MAX_VALUE) {
                 LinkedList<Integer> path = getPath(dstVertex, i);
                 LinkedList<Integer> returnPath = getPath(i, dstVertex);
@@ -228,8 +632,15 @@ public class GraphUtils {
      * @return
      */
     public boolean hasExactPath(int from, int to) {
+        double weight;
+        if (lazy) {
+            int edge = graph.findEdge(from, to);
+            weight = edge == -1 ? 0 : graph.getWeights(from)[edge] + (potentials[from] - potentials[to]);
+        } else {
+            weight = paths[from][to];
+        }
 
-        return (paths[from][to] > 0 && paths[from][to] < Integer.MAX_VALUE);
+        return (weight > 0 && weight < Integer.MAX_VALUE);
     }
 
     /**
@@ -252,61 +663,250 @@ public class GraphUtils {
     }
 
     /**
-     * Implementation of the Johnson algo
+     * Utils for graph with changed or added edge, see update()
+     *
+     * @param from   From vertex
+     * @param to     To vertex
+     * @param weight New weight
+     * @return Utils for changed graph
+     * @throws IllegalArgumentException for invalid vertex or weight
      */
-    private void johnson(Graph graph) {
-        int totalNumber = graph.getCount();
+    public GraphUtils withEdge(int from, int to, double weight) {
+        return update(graph.withEdge(from, to, weight), from, to);
+    }
 
-        // 1. Add a new vertex to the graph and draw edges
-        //    with zero length from it to all other vertices - O(n)
-        int newVertex = graph.addVertex();
-        for (int i = 0; i < totalNumber; i++) {
-            graph.addEdge(newVertex, i, 0);
+    /**
+     * Utils for graph without edges between vertexes, see update()
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return Utils for changed graph
+     * @throws IllegalArgumentException for invalid vertex
+     */
+    public GraphUtils withoutEdge(int from, int to) {
+        return update(graph.withoutEdge(from, to), from, to);
+    }
+
+    /**
+     * Utils for graph with changed edge. This instance is not changed and stays valid for the old graph.
+     * Computed minimal paths are repaired instead of computing all pairs again:
+     * trees not affected by the edge are shared, shorter paths through the edge are propagated
+     * from its end, trees which used the edge before it became longer are computed again in eager mode
+     * and dropped from cache in lazy mode. Potentials are kept while they make the changed edge
+     * non negative, otherwise everything is computed from scratch.
+     * Heuristic and contraction hierarchy are not copied, cycles are searched on each request.
+     *
+     * @param changed Changed graph
+     * @param from    From vertex of changed edge
+     * @param to      To vertex of changed edge
+     * @return Utils for changed graph
+     */
+    private GraphUtils update(CsrGraph changed, int from, int to) {
+        if (changed == graph) {
+            return this;
         }
+        double oldWeight = TreeRepair.minWeight(graph, from, to);
+        double newWeight = TreeRepair.minWeight(changed, from, to);
 
-        // 2. Run the Bellman-Ford algo to calculate the lengths
-        //    minimum paths from this vertex to all others - O(n*(n+m)).
-        BellmanFord bf = new BellmanFord(graph);
-        double[] f = bf.getDistances(newVertex);
+        if (negativeCycle != null || newWeight + (potentials[from] - potentials[to]) < 0) {
+            // Potentials do not work for changed graph
+            return lazy ? new GraphUtils(changed, cache.copy(tree -> null)) : new GraphUtils(changed, executor);
+        }
 
-        // 3. Delete the added vertex and correct the lengths of all edges with
-        //    found lengths of paths so that all lengths become non negative - O(n+m).
-        graph.removeVertex(newVertex);
-        for (int i = 0; i < totalNumber; i++) {
-            for (Edge edge : graph.getListEdge(i)) {
-                edge.addWeight(f[i] - f[edge.to()]);
+        if (lazy) {
+            ShortestPathCache newCache = cache.copy(tree -> {
+                switch (TreeRepair.effect(tree.getDistances(), tree.getTree(), from, to, oldWeight, newWeight)) {
+                    case SHORTER:
+                        return TreeRepair.repairShorter(changed, potentials, tree, from, to, newWeight);
+                    case LONGER:
+                        return null;
+                    default:
+                        return tree;
+                }
+            });
+            return new GraphUtils(changed, strategy, potentials, null, null, null, null, null, newCache);
+        }
+
+        // Rows of matrixes are never changed, so unaffected rows are shared with this instance
+        int totalNumber = graph.getCount();
+        double[][] newPaths = paths.clone();
+        double[][] newCorrectedPaths = correctedPaths.clone();
+        int[][] newDirections = directions.clone();
+
+        newPaths[from] = new double[totalNumber];
+        int[] targets = changed.getTargets(from);
+        double[] weights = changed.getWeights(from);
+        for (int e = changed.edgeStart(from); e < changed.edgeEnd(from); e++) {
+            newPaths[from][targets[e]] = weights[e] + (potentials[from] - potentials[targets[e]]);
+        }
+
+        runInChunks(executor, totalNumber, (start, end) -> {
+            Dijkstra dijkstra = null;
+            for (int i = start; i < end; i++) {
+                switch (TreeRepair.effect(correctedPaths[i], directions[i], from, to, oldWeight, newWeight)) {
+                    case SHORTER: {
+                        ShortestPathTree tree = TreeRepair.repairShorter(
+                                changed, potentials, new ShortestPathTree(i, correctedPaths[i], directions[i]),
+                                from, to, newWeight);
+                        newCorrectedPaths[i] = tree.getDistances();
+                        newDirections[i] = tree.getTree();
+                        break;
+                    }
+                    case LONGER:
+                        if (dijkstra == null) {
+                            dijkstra = new Dijkstra(changed, strategy == Strategy.JOHNSON ? potentials : null);
+                        }
+                        newCorrectedPaths[i] = dijkstra.getDistances(i);
+                        newDirections[i] = dijkstra.getTree(i);
+                        break;
+                    default:
+                        break;
+                }
             }
+        });
+
+        GraphUtils result = new GraphUtils(changed, strategy, potentials, null, newPaths, newCorrectedPaths,
+                                           newDirections, null, null);
+        result.executor = executor;
+        return result;
+    }
+
+    /**
+     * Steps 1-3 of the Johnson algo: potentials of vertexes,
+     * which make lengths of all edges non negative.
+     * Steps are skipped for graph without negative edges.
+     * Source graph is not changed, potentials are applied on the fly.
+     */
+    private void computePotentials(CsrGraph graph) {
+        this.graph = graph;
+
+        if (!graph.isNegativeEdge()) {
+            // All edges are non negative already, zero potentials keep them as is
+            strategy = Strategy.DIJKSTRA;
+            potentials = new double[graph.getCount()];
+            return;
         }
+        strategy = Strategy.JOHNSON;
 
-        // 4. Now for each vertex we run the Dijkstra algo - O(n*(n+m)*log n)
-        Dijkstra dijkstra = new Dijkstra(graph);
+        // 1-2. Run the Bellman-Ford algo to calculate the lengths of minimum paths
+        //      from virtual vertex, which has edges with zero length to all other vertexes.
+        //      Vertex is not added, all distances just start from zero - O(n*(n+m)), usually close to O(n+m).
+        BellmanFord bf = new BellmanFord(graph);
+        potentials = bf.getPotentials();
+        negativeCycle = bf.getNegativeCycle();
+
+        // 3. Lengths of edges are corrected by potentials during Dijkstra runs:
+        //    weight(u, v) + potentials[u] - potentials[v] is non negative.
+    }
+
+    /**
+     * Implementation of the Johnson algo.
+     * Source graph is not changed.
+     *
+     * @param graph    Source graph
+     * @param executor Executor for Dijkstra runs or null
+     */
+    private void johnson(CsrGraph graph, ExecutorService executor) {
+        int totalNumber = graph.getCount();
+
+        // 1-3. Potentials for reweighting of edges
+        computePotentials(graph);
 
+        // 4. Now for each vertex we run the Dijkstra algo - O(n*(n+m)*log n)
+        // 6. Dijkstra corrects the lengths of paths in the same pass - O(n*n).
         paths = new double[totalNumber][totalNumber];
         correctedPaths = new double[totalNumber][];
         directions = new int[totalNumber][];
 
+        this.executor = executor;
+        runInChunks(executor, totalNumber, this::computeRows);
+
+        // 5. Store corrected edge lengths, original graph is kept as is - O(n+m).
+        double[] f = potentials;
         for (int i = 0; i < totalNumber; i++) {
+            int[] targets = graph.getTargets(i);
+            double[] weights = graph.getWeights(i);
+            for (int e = graph.edgeStart(i); e < graph.edgeEnd(i); e++) {
+                paths[i][targets[e]] = weights[e] + (f[i] - f[targets[e]]);
+            }
+        }
+
+        // 7. Cycles are not listed here: they are streamed for each TRIPS request, only through its vertex
+    }
+
+    /**
+     * Dijkstra runs for range of source vertexes.
+     * Each thread uses its own Dijkstra workspace, rows of matrixes are not shared.
+     *
+     * @param from First source vertex
+     * @param to   Source vertex after the last one
+     */
+    private void computeRows(int from, int to) {
+        Dijkstra dijkstra = newDijkstra();
+
+        for (int i = from; i < to; i++) {
             correctedPaths[i] = dijkstra.getDistances(i);
             directions[i] = dijkstra.getTree(i);
         }
+    }
 
-        // 5. Restore the original edge lengths - O(n+m).
-        for (int i = 0; i < totalNumber; i++) {
-            for (Edge edge : graph.getListEdge(i)) {
-                paths[i][edge.to()] = edge.weight();
-                edge.addWeight(f[edge.to()] - f[i]);
-            }
+    /**
+     * Task for range of source vertexes
+     */
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    /**
+     * Run task for all source vertexes, split to chunks between threads of executor
+     *
+     * @param executor    Executor or null to run in current thread
+     * @param totalNumber Number of vertexes
+     * @param task        Task for range of vertexes
+     */
+    private static void runInChunks(ExecutorService executor, int totalNumber, RangeTask task) {
+        if (executor == null || totalNumber < PARALLEL_THRESHOLD) {
+            task.run(0, totalNumber);
+            return;
         }
 
-        // 6. Correct the matrix of path lengths - O(n*n).
-        for (int i = 0; i < totalNumber; i++) {
-            for (int j = 0; j < totalNumber; ++j) {
-                correctedPaths[i][j] += f[j] - f[i];
-            }
+        // Several tasks per thread, so that slow rows do not keep other threads idle
+        int parallelism = executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        int chunk = Math.max(1, totalNumber / (parallelism * 4));
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < totalNumber; start += chunk) {
+            final int from = start;
+            final int to = Math.min(start + chunk, totalNumber);
+            tasks.add(() -> {
+                task.run(from, to);
+                return null;
+            });
         }
+        invokeAll(executor, tasks);
+    }
 
-        // 7. Create a list of cycles - O(n+m).
-        Tarjan tarjan = new Tarjan(graph);
-        cycles = tarjan.findAllCycles();
+    /**
+     * Run tasks and wait for all of them
+     *
+     * @param executor Executor
+     * @param tasks    Tasks
+     */
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing paths", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 }
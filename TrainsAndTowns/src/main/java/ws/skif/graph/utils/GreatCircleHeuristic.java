@@ -0,0 +1,109 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+
+/**
+ * Heuristic by great-circle distance between geographic coordinates of vertexes.
+ * Distance in kilometers is multiplied by weight per kilometer.
+ * Vertexes without coordinates get zero estimate. Path through such vertex is not bounded
+ * by distance, so calibrate() gives zero weight per kilometer if any edge touches it.
+ */
+public class GreatCircleHeuristic implements Heuristic {
+
+    public static final double EARTH_RADIUS = 6371.0088;    // Mean radius of Earth, km
+
+    private final double[] latitudes;           // Latitudes in radians
+    private final double[] longitudes;          // Longitudes in radians
+    private final double weightPerKm;           // Minimal weight of edge per kilometer
+
+    /**
+     * Constructor
+     *
+     * @param graph       Graph with coordinates
+     * @param weightPerKm Weight of one kilometer, must not be greater than weight per kilometer of any path
+     *                    between vertexes with coordinates, including paths through vertexes without them
+     */
+    public GreatCircleHeuristic(CsrGraph graph, double weightPerKm) {
+        if (!graph.hasCoordinates()) {
+            throw new IllegalArgumentException("Graph has no coordinates");
+        }
+        int totalVertex = graph.getCount();
+        latitudes = new double[totalVertex];
+        longitudes = new double[totalVertex];
+        for (int v = 0; v < totalVertex; v++) {
+            latitudes[v] = Math.toRadians(graph.getLatitudes()[v]);
+            longitudes[v] = Math.toRadians(graph.getLongitudes()[v]);
+        }
+        this.weightPerKm = weightPerKm;
+    }
+
+    /**
+     * Heuristic with the biggest weight per kilometer that is still admissible for all edges of graph.
+     * If any edge touches vertex without coordinates, weight per kilometer is zero:
+     * such edge does not bound length of path through it.
+     *
+     * @param graph Graph with coordinates
+     * @return Heuristic
+     */
+    public static GreatCircleHeuristic calibrate(CsrGraph graph) {
+        GreatCircleHeuristic heuristic = new GreatCircleHeuristic(graph, 1);
+
+        double weightPerKm = Double.POSITIVE_INFINITY;
+        for (int u = 0; u < graph.getCount(); u++) {
+            int[] targets = graph.getTargets(u);
+            double[] weights = graph.getWeights(u);
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                if (!heuristic.hasCoordinates(u) || !heuristic.hasCoordinates(targets[e])) {
+                    return new GreatCircleHeuristic(graph, 0);
+                }
+                double km = heuristic.kilometers(u, targets[e]);
+                if (km > 0) {
+                    weightPerKm = Math.min(weightPerKm, weights[e] / km);
+                }
+            }
+        }
+        if (weightPerKm == Double.POSITIVE_INFINITY || weightPerKm < 0) {
+            weightPerKm = 0;
+        }
+
+        return new GreatCircleHeuristic(graph, weightPerKm);
+    }
+
+    /**
+     * Coordinates of vertex are known
+     *
+     * @param vertex
+     * @return
+     */
+    public boolean hasCoordinates(int vertex) {
+        return !Double.isNaN(latitudes[vertex]) && !Double.isNaN(longitudes[vertex]);
+    }
+
+    public double getWeightPerKm() {
+        return weightPerKm;
+    }
+
+    @Override
+    public double estimate(int vertex, int target) {
+        return kilometers(vertex, target) * weightPerKm;
+    }
+
+    /**
+     * Great-circle distance by haversine formula
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return Distance in km, 0 if coordinates are unknown
+     */
+    public double kilometers(int from, int to) {
+        if (!hasCoordinates(from) || !hasCoordinates(to)) {
+            return 0;
+        }
+        double lat1 = latitudes[from];
+        double lat2 = latitudes[to];
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin((longitudes[to] - longitudes[from]) / 2);
+        double a = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,18 @@
+package ws.skif.graph.utils;
+
+/**
+ * Lower bound of distance between 2 vertexes for A* search.
+ * Estimate must never be greater than the real distance and must be consistent:
+ * estimate(u, t) <= weight(u, v) + estimate(v, t) for every edge (u, v).
+ */
+public interface Heuristic {
+
+    /**
+     * Lower bound of distance
+     *
+     * @param vertex From vertex
+     * @param target To vertex
+     * @return Estimate of distance
+     */
+    double estimate(int vertex, int target);
+}
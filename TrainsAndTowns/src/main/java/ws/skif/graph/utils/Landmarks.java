@@ -0,0 +1,237 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+
+import java.io.*;
+
+/**
+ * ALT (A*, landmarks, triangle inequality) heuristic.
+ * For a few landmark vertexes distances from and to all other vertexes are computed once,
+ * then by triangle inequality d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L).
+ * Bound is valid for graphs with negative edges too, if there are no cycles with negative length.
+ * Instance is immutable and thread-safe.
+ */
+public class Landmarks implements Heuristic {
+
+    private static final int MAGIC = 0x414C5431;        // "ALT1"
+    private static final int VERSION = 1;
+
+    private final int totalVertex;                      // Number of vertexes in graph
+    private final boolean negativeEdge;                 // Graph has negative edges, so 0 is not a bound
+    private final int[] landmarks;                      // Landmark vertexes
+    private final double[] forward;                     // d(L, v), index is v * landmarks + L
+    private final double[] backward;                    // d(v, L), index is v * landmarks + L
+
+    private Landmarks(int totalVertex, boolean negativeEdge, int[] landmarks, double[] forward, double[] backward) {
+        this.totalVertex = totalVertex;
+        this.negativeEdge = negativeEdge;
+        this.landmarks = landmarks;
+        this.forward = forward;
+        this.backward = backward;
+    }
+
+    /**
+     * Select landmarks and compute distances.
+     * The first landmark is the vertex farthest from vertex 0,
+     * each next landmark is the vertex farthest from already selected.
+     *
+     * @param graph Graph
+     * @param count Number of landmarks
+     * @return Landmarks
+     */
+    public static Landmarks select(CsrGraph graph, int count) {
+        int totalVertex = graph.getCount();
+        count = Math.min(count, totalVertex);
+        if (count < 1) {
+            throw new IllegalArgumentException("Number of landmarks must be positive: " + count);
+        }
+
+        if ((long) totalVertex * count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many landmarks for " + totalVertex + " vertexes: " + count);
+        }
+
+        int[] selected = new int[count];
+        double[] forward = new double[totalVertex * count];
+        double[] backward = new double[totalVertex * count];
+
+        // Distance to the nearest selected landmark, vertexes not reached yet are preferred
+        double[] nearest = distances(graph, 0);
+        for (int i = 0; i < count; i++) {
+            int landmark = farthest(nearest, selected, i);
+            selected[i] = landmark;
+
+            double[] from = distances(graph, landmark);
+            double[] to = distances(graph.getReverse(), landmark);
+            for (int v = 0; v < totalVertex; v++) {
+                forward[v * count + i] = from[v];
+                backward[v * count + i] = to[v];
+                nearest[v] = i == 0 ? from[v] : Math.min(nearest[v], from[v]);
+            }
+        }
+
+        return new Landmarks(totalVertex, graph.isNegativeEdge(), selected, forward, backward);
+    }
+
+    /**
+     * Vertex with the biggest distance, unreachable vertexes go first
+     *
+     * @param nearest  Distance to the nearest landmark
+     * @param selected Already selected landmarks
+     * @param count    Number of selected landmarks
+     * @return Vertex
+     */
+    private static int farthest(double[] nearest, int[] selected, int count) {
+        int result = -1;
+        for (int v = 0; v < nearest.length; v++) {
+            boolean used = false;
+            for (int i = 0; i < count; i++) {
+                used |= selected[i] == v;
+            }
+            if (!used && (result == -1 || nearest[v] > nearest[result])) {
+                result = v;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Minimal distances from vertex.
+     * Bellman-Ford algo is used for graph with negative edges, Dijkstra algo otherwise
+     *
+     * @param graph  Graph
+     * @param source Source vertex
+     * @return New array of distances
+     */
+    private static double[] distances(CsrGraph graph, int source) {
+        if (graph.isNegativeEdge()) {
+            return new BellmanFord(graph).getDistances(source).clone();
+        }
+        return new Dijkstra(graph).getDistances(source);
+    }
+
+    public int getCount() {
+        return landmarks.length;
+    }
+
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Number of vertexes of graph used for landmarks
+     *
+     * @return
+     */
+    public int getTotalVertex() {
+        return totalVertex;
+    }
+
+    @Override
+    public double estimate(int vertex, int target) {
+        int k = landmarks.length;
+        int v = vertex * k;
+        int t = target * k;
+        double result = negativeEdge ? Double.NEGATIVE_INFINITY : 0;
+
+        for (int i = 0; i < k; i++) {
+            double toTarget = forward[t + i] - forward[v + i];         // d(L, t) - d(L, v)
+            double fromVertex = backward[v + i] - backward[t + i];     // d(v, L) - d(t, L)
+            // Vertexes not connected with landmark give no bound
+            if (toTarget > result && toTarget != Double.POSITIVE_INFINITY) {
+                result = toTarget;
+            }
+            if (fromVertex > result && fromVertex != Double.POSITIVE_INFINITY) {
+                result = fromVertex;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Write landmarks to file
+     *
+     * @param fileName
+     * @throws IOException
+     */
+    public void write(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(totalVertex);
+            out.writeBoolean(negativeEdge);
+            out.writeInt(landmarks.length);
+            for (int landmark : landmarks) {
+                out.writeInt(landmark);
+            }
+            for (double distance : forward) {
+                out.writeDouble(distance);
+            }
+            for (double distance : backward) {
+                out.writeDouble(distance);
+            }
+        }
+    }
+
+    /**
+     * Read landmarks from file and check that they were computed for the graph
+     *
+     * @param fileName
+     * @param graph    Graph of landmarks
+     * @return Landmarks
+     * @throws IOException if file is invalid, truncated or does not match the graph
+     */
+    public static Landmarks read(String fileName, CsrGraph graph) throws IOException {
+        try (FileInputStream file = new FileInputStream(fileName);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a landmarks file: " + fileName);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported landmarks version: " + version);
+            }
+            int totalVertex = in.readInt();
+            if (totalVertex != graph.getCount()) {
+                throw new IOException("Landmarks of graph with " + totalVertex + " vertexes, graph has "
+                                              + graph.getCount());
+            }
+            boolean negativeEdge = in.readBoolean();
+            if (negativeEdge != graph.isNegativeEdge()) {
+                throw new IOException("Landmarks of another graph: negative edges do not match");
+            }
+            int count = in.readInt();
+            if (count < 1 || count > totalVertex) {
+                throw new IOException("Invalid number of landmarks: " + count);
+            }
+            int[] landmarks = new int[count];
+            for (int i = 0; i < landmarks.length; i++) {
+                landmarks[i] = in.readInt();
+                if (landmarks[i] < 0 || landmarks[i] >= totalVertex) {
+                    throw new IOException("Invalid landmark: " + landmarks[i]);
+                }
+            }
+            // Both arrays of distances must fit in the rest of file after 17 bytes of header and landmarks
+            long size = (long) totalVertex * count;
+            long remaining = file.getChannel().size() - 17 - 4L * count;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Too many distances of " + count + " landmarks: " + size);
+            }
+            if (16 * size > remaining) {
+                throw new IOException("Landmarks file is shorter than distances of " + count + " landmarks");
+            }
+            double[] forward = new double[totalVertex * count];
+            for (int i = 0; i < forward.length; i++) {
+                forward[i] = in.readDouble();
+            }
+            double[] backward = new double[totalVertex * count];
+            for (int i = 0; i < backward.length; i++) {
+                backward[i] = in.readDouble();
+            }
+            if (in.read() != -1) {
+                throw new IOException("Landmarks file is longer than distances of " + count + " landmarks");
+            }
+            return new Landmarks(totalVertex, negativeEdge, landmarks, forward, backward);
+        }
+    }
+}
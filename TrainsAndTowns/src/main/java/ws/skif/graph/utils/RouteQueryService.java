@@ -0,0 +1,252 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+import ws.skif.graph.models.RouteList;
+import ws.skif.graph.models.VertexPair;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Route queries from many threads over one shared graph.
+ * <p>
+ * Thread-safety guarantees:
+ * <ul>
+ * <li>All methods can be called concurrently, no external synchronization is needed.</li>
+ * <li>Graph and computed matrixes are immutable after construction and are shared by all threads.</li>
+ * <li>Graph can be changed through VersionedGraph while queries run: each query takes
+ * the current version once without locks and is answered by this version only.</li>
+ * <li>Scratch state of searches (distances, trees, heaps) is confined to the calling thread:
+ * every query creates its own search objects, which use the Dijkstra workspaces of current thread.</li>
+ * <li>In lazy mode computed trees are kept in thread-safe cache,
+ * concurrent requests for the same source vertex compute the tree once.</li>
+ * <li>Returned lists and trees are not shared with other callers, except ShortestPathTree arrays,
+ * which must not be changed.</li>
+ * </ul>
+ * Dijkstra, BellmanFord and ElementaryCycles instances are not thread-safe themselves and are never shared here.
+ * Heuristic or contraction hierarchy should be set on GraphUtils before the service is used.
+ */
+public class RouteQueryService {
+
+    private final VersionedGraph versions;              // Versions of graph with computed paths
+    private final LongAdder queries = new LongAdder();  // Number of served queries
+
+    /**
+     * Constructor. Minimal paths are computed on demand, trees of last maxTrees vertexes are kept.
+     *
+     * @param graph    Graph, is compiled to immutable form
+     * @param maxTrees Maximum number of trees kept in memory
+     */
+    public RouteQueryService(Graph graph, int maxTrees) {
+        this(new GraphUtils(graph.compile(), maxTrees));
+    }
+
+    /**
+     * Constructor. Minimal paths are computed on demand, trees of last maxTrees vertexes are kept.
+     *
+     * @param graph    Graph
+     * @param maxTrees Maximum number of trees kept in memory
+     */
+    public RouteQueryService(CsrGraph graph, int maxTrees) {
+        this(new GraphUtils(graph, maxTrees));
+    }
+
+    /**
+     * Constructor for already computed paths
+     *
+     * @param utils Computed paths, must not be changed after
+     */
+    public RouteQueryService(GraphUtils utils) {
+        this(new VersionedGraph(utils));
+    }
+
+    /**
+     * Constructor for graph changed at runtime
+     *
+     * @param versions Versions of graph, updates are published by writers
+     */
+    public RouteQueryService(VersionedGraph versions) {
+        this.versions = versions;
+    }
+
+    /**
+     * Computed paths of the current version
+     *
+     * @return
+     */
+    public GraphUtils getUtils() {
+        return versions.current().getUtils();
+    }
+
+    public VersionedGraph getVersions() {
+        return versions;
+    }
+
+    /**
+     * Number of served queries
+     *
+     * @return
+     */
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    /**
+     * The length of the minimum path between 2 vertexes
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return Length or POSITIVE_INFINITY if there is no path
+     */
+    public double distance(int from, int to) {
+        GraphUtils utils = getUtils();
+        check(utils, from);
+        check(utils, to);
+        queries.increment();
+        if (!utils.isLazy()) {
+            return utils.getPathLength(from, to);
+        }
+        ShortestPathTree tree = cachedTree(utils, from);
+        return tree != null ? tree.getDistance(to) : utils.findPathLength(from, to);
+    }
+
+    /**
+     * The path of the minimum length between 2 vertexes
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return List of vertexes from the source to target vertex, empty if there is no path
+     */
+    public LinkedList<Integer> path(int from, int to) {
+        GraphUtils utils = getUtils();
+        check(utils, from);
+        check(utils, to);
+        queries.increment();
+        LinkedList<Integer> path;
+        if (!utils.isLazy()) {
+            path = utils.getPath(from, to);
+        } else {
+            ShortestPathTree tree = cachedTree(utils, from);
+            path = tree != null ? tree.getPath(to) : utils.findPath(from, to);
+        }
+        return isRoute(utils.getGraph(), path, from) ? path : new LinkedList<>();
+    }
+
+    /**
+     * Minimal paths from vertex to all others
+     *
+     * @param from From vertex
+     * @return Tree, its arrays must not be changed
+     */
+    public ShortestPathTree tree(int from) {
+        GraphUtils utils = getUtils();
+        check(utils, from);
+        queries.increment();
+        return utils.getTree(from);
+    }
+
+    /**
+     * Length of route by direct edges
+     *
+     * @param route Pairs of vertexes
+     * @return Length or "NO SUCH ROUTE"
+     */
+    public String exactRoute(List<VertexPair> route) {
+        GraphUtils utils = getUtils();
+        for (VertexPair pair : route) {
+            check(utils, pair.getFrom());
+            check(utils, pair.getTo());
+        }
+        queries.increment();
+        return utils.getExactRoute(route);
+    }
+
+    /**
+     * Cycles through vertex
+     *
+     * @param startVertex Start position
+     * @param maxStops    Maximum stops. -1 to run without checks of this param
+     * @param maxLength   Maximum length. -1 to run without checks of this param
+     * @return List of routes
+     */
+    public RouteList trips(int startVertex, int maxStops, int maxLength) {
+        GraphUtils utils = getUtils();
+        check(utils, startVertex);
+        queries.increment();
+        return utils.commisVoyageur(startVertex, maxStops, maxLength);
+    }
+
+    /**
+     * Number of routes between 2 vertexes with exact number of hops
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @param hops Number of hops
+     * @return
+     */
+    public int routesWithHops(int from, int to, int hops) {
+        GraphUtils utils = getUtils();
+        check(utils, from);
+        check(utils, to);
+        queries.increment();
+        return utils.findAllRoutes(from, to, hops);
+    }
+
+    /**
+     * Number of different routes to vertex shorter than maxLength
+     *
+     * @param vertex    Vertex
+     * @param maxLength Maximum length
+     * @return
+     */
+    public int routesCount(int vertex, int maxLength) {
+        GraphUtils utils = getUtils();
+        check(utils, vertex);
+        queries.increment();
+        return utils.getAllRoutesCount(vertex, maxLength);
+    }
+
+    /**
+     * Tree of lazy mode, if it was computed for source already.
+     * Point-to-point queries use it instead of a new search, but do not compute it.
+     *
+     * @param utils Utils in lazy mode
+     * @param from  Source vertex
+     * @return Tree or null
+     */
+    private static ShortestPathTree cachedTree(GraphUtils utils, int from) {
+        ShortestPathCache cache = utils.getCache();
+        return cache == null ? null : cache.lookup(from);
+    }
+
+    /**
+     * Searches return only the target or pass placeholders of missing edges, if there is no path
+     *
+     * @param graph Graph of path
+     * @param path  Found path
+     * @param from  Source vertex
+     * @return TRUE, if path starts from the source and all its edges exist
+     */
+    private static boolean isRoute(CsrGraph graph, LinkedList<Integer> path, int from) {
+        if (path.isEmpty() || path.getFirst() != from) {
+            return false;
+        }
+        int previous = from;
+        for (int vertex : path.subList(1, path.size())) {
+            int edge = graph.findEdge(previous, vertex);
+            if (edge == -1 || !(graph.getWeights(previous)[edge] < Integer.MAX_VALUE)) {
+                return false;
+            }
+            previous = vertex;
+        }
+        return true;
+    }
+
+    private static void check(GraphUtils utils, int vertex) {
+        if (vertex < 0 || vertex >= utils.getGraph().getCount()) {
+            throw new IllegalArgumentException("Invalid vertex: " + vertex);
+        }
+    }
+}
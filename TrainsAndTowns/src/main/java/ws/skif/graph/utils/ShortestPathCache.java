@@ -0,0 +1,278 @@
+package ws.skif.graph.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded cache of minimal path trees by source vertex.
+ * Cache is limited by number of trees and by their total size in bytes.
+ * All methods are thread-safe. A tree missing in cache is computed once,
+ * concurrent requests for the same source wait for this computation.
+ */
+public class ShortestPathCache {
+
+    /**
+     * What tree is dropped when cache is full
+     */
+    public enum Eviction {
+        LRU,                                // Least recently used tree
+        COST                                // Tree with the smallest computation time per byte
+    }
+
+    private final int maxTrees;             // Maximum number of trees
+    private final long maxBytes;            // Maximum total size of trees
+    private final Eviction eviction;        // Eviction policy
+
+    private final LinkedHashMap<Integer, Entry> entries;                    // Trees in access order
+    private final Map<Integer, FutureTask<ShortestPathTree>> inFlight;      // Trees under computation
+    private long bytes;                     // Total size of trees
+
+    private long hits;                      // Number of requests answered from cache
+    private long misses;                    // Number of computed trees
+    private long evictions;                 // Number of dropped trees
+
+    /**
+     * Constructor
+     *
+     * @param maxTrees Maximum number of trees
+     * @param maxBytes Maximum total size of trees in bytes
+     * @param eviction Eviction policy
+     */
+    public ShortestPathCache(int maxTrees, long maxBytes, Eviction eviction) {
+        if (maxTrees < 1) {
+            throw new IllegalArgumentException("Number of trees must be positive: " + maxTrees);
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Size of cache must be positive: " + maxBytes);
+        }
+        this.maxTrees = maxTrees;
+        this.maxBytes = maxBytes;
+        this.eviction = eviction;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        inFlight = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * LRU cache limited by number of trees only
+     *
+     * @param maxTrees Maximum number of trees
+     */
+    public ShortestPathCache(int maxTrees) {
+        this(maxTrees, Long.MAX_VALUE, Eviction.LRU);
+    }
+
+    /**
+     * Get tree from cache or compute it
+     *
+     * @param source Source vertex
+     * @param loader Computes tree for source vertex if it is missing
+     * @return Tree for source vertex
+     */
+    public ShortestPathTree get(int source, IntFunction<ShortestPathTree> loader) {
+        ShortestPathTree tree = lookup(source);
+        if (tree != null) {
+            return tree;
+        }
+
+        FutureTask<ShortestPathTree> task = new FutureTask<>(() -> loader.apply(source));
+        FutureTask<ShortestPathTree> running = inFlight.putIfAbsent(source, task);
+        if (running == null) {
+            running = task;
+            try {
+                long start = System.nanoTime();
+                task.run();
+                long cost = System.nanoTime() - start;
+                if (!task.isCancelled()) {
+                    try {
+                        put(task.get(), cost);
+                    } catch (ExecutionException exp) {
+                        // Reported below
+                    }
+                }
+            } catch (InterruptedException exp) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.remove(source, task);
+            }
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tree of vertex " + source, exp);
+        } catch (ExecutionException exp) {
+            if (exp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exp.getCause();
+            }
+            throw new IllegalStateException(exp.getCause());
+        }
+    }
+
+    /**
+     * Get tree from cache
+     *
+     * @param source Source vertex
+     * @return Tree or null, if there is no such tree in cache
+     */
+    public synchronized ShortestPathTree lookup(int source) {
+        Entry entry = entries.get(source);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.tree;
+    }
+
+    /**
+     * Put tree into cache
+     *
+     * @param tree Tree
+     * @param cost Cost of computation of this tree
+     */
+    public synchronized void put(ShortestPathTree tree, long cost) {
+        long size = sizeOf(tree);
+        if (size > maxBytes) {
+            return;
+        }
+
+        Entry old = entries.put(tree.getSource(), new Entry(tree, size, cost));
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+        bytes += size;
+
+        while (entries.size() > maxTrees || bytes > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove tree of source vertex
+     *
+     * @param source Source vertex
+     */
+    public synchronized void invalidate(int source) {
+        Entry entry = entries.remove(source);
+        if (entry != null) {
+            bytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * Remove all trees
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Copy of cache with the same limits for changed graph.
+     * Each tree is passed through mapper: tree still valid is returned as is,
+     * repaired tree replaces the old one, null drops the tree. Order of use is kept.
+     *
+     * @param mapper Tree for changed graph or null
+     * @return New cache
+     */
+    public synchronized ShortestPathCache copy(UnaryOperator<ShortestPathTree> mapper) {
+        ShortestPathCache result = new ShortestPathCache(maxTrees, maxBytes, eviction);
+        for (Entry entry : entries.values()) {
+            ShortestPathTree tree = mapper.apply(entry.tree);
+            if (tree != null) {
+                result.put(tree, entry.cost);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop one tree according to eviction policy
+     */
+    private void evict() {
+        Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+        Map.Entry<Integer, Entry> victim = iterator.next();
+
+        if (eviction == Eviction.COST) {
+            // Iteration goes from least recently used, so on equal cost older tree is dropped
+            while (iterator.hasNext()) {
+                Map.Entry<Integer, Entry> next = iterator.next();
+                if (next.getValue().costPerByte() < victim.getValue().costPerByte()) {
+                    victim = next;
+                }
+            }
+        }
+
+        entries.remove(victim.getKey());
+        bytes -= victim.getValue().bytes;
+        evictions++;
+    }
+
+    /**
+     * Approximate size of tree in memory
+     *
+     * @param tree
+     * @return Size in bytes
+     */
+    public static long sizeOf(ShortestPathTree tree) {
+        // Object headers and array headers, then payload
+        return 64 + 8L * tree.getDistances().length + 4L * tree.getTree().length;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ShortestPathCache{" +
+                "trees=" + entries.size() +
+                ", bytes=" + bytes +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+
+    /**
+     * Tree in cache with its size and cost of computation
+     */
+    private static class Entry {
+        final ShortestPathTree tree;
+        final long bytes;
+        final long cost;
+
+        Entry(ShortestPathTree tree, long bytes, long cost) {
+            this.tree = tree;
+            this.bytes = bytes;
+            this.cost = cost;
+        }
+
+        double costPerByte() {
+            return (double) cost / bytes;
+        }
+    }
+}
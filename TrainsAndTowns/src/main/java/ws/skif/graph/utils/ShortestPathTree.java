@@ -0,0 +1,55 @@
+package ws.skif.graph.utils;
+
+import java.util.LinkedList;
+
+/**
+ * Minimal paths from one source vertex to all others
+ */
+public class ShortestPathTree {
+    private final int source;               // Source vertex
+    private final double[] distances;       // Distances from source vertex
+    private final int[] tree;               // Previous vertex on minimal path, -1 for source and unreachable
+
+    public ShortestPathTree(int source, double[] distances, int[] tree) {
+        this.source = source;
+        this.distances = distances;
+        this.tree = tree;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public double[] getDistances() {
+        return distances;
+    }
+
+    public int[] getTree() {
+        return tree;
+    }
+
+    /**
+     * Distance from source vertex
+     *
+     * @param to To vertex
+     * @return
+     */
+    public double getDistance(int to) {
+        return distances[to];
+    }
+
+    /**
+     * Constructs the path from source vertex to the target vertex
+     *
+     * @param to To vertex
+     * @return List of vertexes from the source to target vertex
+     */
+    public LinkedList<Integer> getPath(int to) {
+        LinkedList<Integer> path = new LinkedList<>();
+        do {
+            path.addFirst(to);
+            to = tree[to];
+        } while (to != -1);
+        return path;
+    }
+}
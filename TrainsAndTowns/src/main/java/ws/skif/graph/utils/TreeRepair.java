@@ -0,0 +1,107 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+
+/**
+ * Repair of minimal path tree after change of one edge.
+ * Potentials must stay valid for changed graph: weight(u, v) + potentials[u] - potentials[v]
+ * is non negative for every edge.
+ */
+final class TreeRepair {
+
+    /**
+     * How change of edge affects tree
+     */
+    enum Effect {
+        NONE,                               // Tree is still valid
+        SHORTER,                            // Some paths become shorter through the edge
+        LONGER                              // Tree uses the edge, which became longer or was removed
+    }
+
+    private TreeRepair() {
+    }
+
+    /**
+     * Minimal weight of edges between vertexes
+     *
+     * @param graph
+     * @param from  From vertex
+     * @param to    To vertex
+     * @return Weight or POSITIVE_INFINITY if there is no such edge
+     */
+    static double minWeight(CsrGraph graph, int from, int to) {
+        int[] targets = graph.getTargets(from);
+        double[] weights = graph.getWeights(from);
+        double result = Double.POSITIVE_INFINITY;
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+            if (targets[e] == to && weights[e] < result) {
+                result = weights[e];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check tree against changed edge, O(1)
+     *
+     * @param distances Distances from source vertex
+     * @param tree      Previous vertex on minimal path
+     * @param from      From vertex of edge
+     * @param to        To vertex of edge
+     * @param oldWeight Minimal weight of edges before change
+     * @param newWeight Minimal weight of edges after change
+     * @return
+     */
+    static Effect effect(double[] distances, int[] tree, int from, int to, double oldWeight, double newWeight) {
+        if (newWeight < oldWeight) {
+            return distances[from] + newWeight < distances[to] ? Effect.SHORTER : Effect.NONE;
+        }
+        if (newWeight > oldWeight) {
+            // Only paths through the edge become longer
+            return tree[to] == from ? Effect.LONGER : Effect.NONE;
+        }
+        return Effect.NONE;
+    }
+
+    /**
+     * Propagate shorter paths from the end of changed edge.
+     * Only vertexes with shorter paths are visited, source tree is not changed.
+     *
+     * @param graph      Changed graph
+     * @param potentials Potentials of vertexes
+     * @param source     Tree
+     * @param from       From vertex of edge
+     * @param to         To vertex of edge
+     * @param newWeight  Minimal weight of edges after change
+     * @return New tree
+     */
+    static ShortestPathTree repairShorter(CsrGraph graph, double[] potentials, ShortestPathTree source,
+                                          int from, int to, double newWeight) {
+        double[] distances = source.getDistances().clone();
+        int[] tree = source.getTree().clone();
+
+        // Heap is ordered by reweighted distance, which is original distance minus potential
+        DijkstraWorkspace workspace = DijkstraWorkspace.forThread(graph.getCount());
+        distances[to] = distances[from] + newWeight;
+        tree[to] = from;
+        workspace.addSource(to, distances[to], distances[to] - potentials[to]);
+
+        while (!workspace.isEmpty()) {
+            int vertex = workspace.extractMin();
+            double distance = distances[vertex];
+            int[] targets = graph.getTargets(vertex);
+            double[] weights = graph.getWeights(vertex);
+            for (int e = graph.edgeStart(vertex); e < graph.edgeEnd(vertex); e++) {
+                int next = targets[e];
+                double newDistance = distance + weights[e];
+                if (newDistance < distances[next]) {
+                    distances[next] = newDistance;
+                    tree[next] = vertex;
+                    workspace.relax(vertex, next, newDistance, newDistance - potentials[next]);
+                }
+            }
+        }
+
+        return new ShortestPathTree(source.getSource(), distances, tree);
+    }
+}
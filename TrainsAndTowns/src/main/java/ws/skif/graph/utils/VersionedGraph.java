@@ -0,0 +1,110 @@
+package ws.skif.graph.utils;
+
+import ws.skif.graph.models.CsrGraph;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Graph with computed paths, which is changed by publishing new versions.
+ * Each version is immutable: writers build the next version from the current one
+ * (GraphUtils.withEdge() shares unchanged arrays, rows and trees) and publish it atomically.
+ * Readers take the current version without locks and keep using it until the query is done,
+ * so a query never sees a half-applied change.
+ * Writers are serialized, so each change is built from the latest version.
+ * CsrGraph keeps edges in blocks of vertexes, so a new version copies only the block of changed vertex
+ * and shares other blocks with the previous version.
+ */
+public class VersionedGraph {
+
+    /**
+     * Published state of graph
+     */
+    public static final class Version {
+        private final long number;              // Number of version, starts from 1
+        private final GraphUtils utils;         // Graph and computed paths of this version
+
+        private Version(long number, GraphUtils utils) {
+            this.number = number;
+            this.utils = utils;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public GraphUtils getUtils() {
+            return utils;
+        }
+
+        public CsrGraph getGraph() {
+            return utils.getGraph();
+        }
+    }
+
+    private final AtomicReference<Version> current;     // Last published version
+    private final Object writeLock = new Object();      // Serializes writers, readers do not use it
+
+    /**
+     * Constructor
+     *
+     * @param utils Computed paths of the first version, must not be changed after
+     */
+    public VersionedGraph(GraphUtils utils) {
+        current = new AtomicReference<>(new Version(1, utils));
+    }
+
+    /**
+     * Last published version, without locks
+     *
+     * @return
+     */
+    public Version current() {
+        return current.get();
+    }
+
+    /**
+     * Publish version with changed or added edge
+     *
+     * @param from   From vertex
+     * @param to     To vertex
+     * @param weight New weight
+     * @return Published version
+     * @throws IllegalArgumentException for invalid vertex or weight
+     */
+    public Version setEdge(int from, int to, double weight) {
+        return update(utils -> utils.withEdge(from, to, weight));
+    }
+
+    /**
+     * Publish version without edges between vertexes
+     *
+     * @param from From vertex
+     * @param to   To vertex
+     * @return Published version
+     * @throws IllegalArgumentException for invalid vertex
+     */
+    public Version removeEdge(int from, int to) {
+        return update(utils -> utils.withoutEdge(from, to));
+    }
+
+    /**
+     * Build new version from the current one and publish it.
+     * Several changes can be applied at once, then readers see either none or all of them.
+     *
+     * @param change Function building new utils, it must not change the given one
+     * @return Published version
+     */
+    public Version update(UnaryOperator<GraphUtils> change) {
+        synchronized (writeLock) {
+            Version last = current.get();
+            GraphUtils utils = change.apply(last.utils);
+            if (utils == last.utils) {
+                return last;
+            }
+            Version next = new Version(last.number + 1, utils);
+            current.set(next);
+            return next;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ws.skif.graph.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of Dijkstra workspaces for short-lived threads.
+ * Thread-local workspaces are allocated again by each new thread, e.g. a virtual thread per connection,
+ * so such threads borrow workspaces from the pool for a task and return them after.
+ * At most size tasks run searches at once, other tasks wait for free workspaces.
+ */
+public class WorkspacePool {
+
+    private final BlockingQueue<DijkstraWorkspace[]> free;     // Workspaces which are not borrowed
+
+    /**
+     * Constructor
+     *
+     * @param size Number of workspaces for forward and backward search
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public WorkspacePool(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+        free = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            free.add(DijkstraWorkspace.newPair());
+        }
+    }
+
+    /**
+     * Run task with borrowed workspaces: DijkstraWorkspace.forThread() returns them until task is done.
+     * Task of thread, which has already borrowed workspaces, uses them.
+     *
+     * @param task
+     * @param <T>
+     * @return Result of task
+     * @throws InterruptedException if thread is interrupted while waiting for workspaces
+     */
+    public <T> T call(Supplier<T> task) throws InterruptedException {
+        if (DijkstraWorkspace.BORROWED.get() != null) {
+            return task.get();
+        }
+        DijkstraWorkspace[] workspaces = free.take();
+        DijkstraWorkspace.BORROWED.set(workspaces);
+        try {
+            return task.get();
+        } finally {
+            DijkstraWorkspace.BORROWED.remove();
+            free.add(workspaces);
+        }
+    }
+
+    /**
+     * Number of workspaces which are not borrowed
+     *
+     * @return
+     */
+    public int getFreeCount() {
+        return free.size();
+    }
+}
@@ -0,0 +1,161 @@
+package ws.skif.server;
+
+import ws.skif.graph.utils.ShortestPathTree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Batch mode of route queries: queries are read line by line, answers are written
+ * in the same order, one per line, see QueryProtocol for format.
+ * Input is processed in blocks, so memory does not depend on number of queries.
+ * Queries of a block are grouped by source vertex, each group is evaluated by one task,
+ * DISTANCE and PATH queries of a group share one tree of minimal paths.
+ */
+public class BatchProcessor {
+
+    public static final int DEFAULT_BLOCK_SIZE = 8192;  // Queries in one block
+
+    private final QueryProtocol protocol;
+    private final ExecutorService executor;
+    private final int blockSize;
+
+    /**
+     * Constructor
+     *
+     * @param protocol  Protocol with query service
+     * @param executor  Executor for groups of queries, null to run in current thread. Executor is not shut down
+     * @param blockSize Queries in one block
+     */
+    public BatchProcessor(QueryProtocol protocol, ExecutorService executor, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.protocol = protocol;
+        this.executor = executor;
+        this.blockSize = blockSize;
+    }
+
+    public BatchProcessor(QueryProtocol protocol, ExecutorService executor) {
+        this(protocol, executor, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Answer all queries of input
+     *
+     * @param in  Queries
+     * @param out Answers
+     * @return Number of queries
+     * @throws IOException
+     */
+    public long process(BufferedReader in, Writer out) throws IOException {
+        long total = 0;
+        List<String> block = new ArrayList<>(blockSize);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            block.add(line);
+            if (block.size() == blockSize) {
+                total += processBlock(block, out);
+                block.clear();
+            }
+        }
+        total += processBlock(block, out);
+        out.flush();
+        return total;
+    }
+
+    /**
+     * Answer queries of one block
+     *
+     * @param lines Queries
+     * @param out   Answers
+     * @return Number of queries
+     * @throws IOException
+     */
+    private int processBlock(List<String> lines, Writer out) throws IOException {
+        String[] answers = new String[lines.size()];
+        Query[] queries = new Query[lines.size()];
+
+        // Group queries by source vertex, keep order of groups stable
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < queries.length; i++) {
+            try {
+                queries[i] = protocol.parse(lines.get(i));
+                groups.computeIfAbsent(queries[i].getSource(), k -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException exp) {
+                answers[i] = "ERROR " + exp.getMessage();
+            }
+        }
+
+        if (executor == null) {
+            for (List<Integer> group : groups.values()) {
+                processGroup(queries, group, answers);
+            }
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>(groups.size());
+            for (List<Integer> group : groups.values()) {
+                tasks.add(() -> {
+                    processGroup(queries, group, answers);
+                    return null;
+                });
+            }
+            invokeAll(tasks);
+        }
+
+        for (String answer : answers) {
+            out.write(answer);
+            out.write('\n');
+        }
+        return answers.length;
+    }
+
+    /**
+     * Answer queries with the same source vertex.
+     * Each task writes its own cells of answers, they are read after all tasks are done.
+     *
+     * @param queries All queries of block
+     * @param group   Indexes of queries in group
+     * @param answers Answers of block
+     */
+    private void processGroup(Query[] queries, List<Integer> group, String[] answers) {
+        ShortestPathTree tree = null;
+        for (int i : group) {
+            Query query = queries[i];
+            try {
+                Query.Type type = query.getType();
+                if (type == Query.Type.DISTANCE || type == Query.Type.PATH) {
+                    if (tree == null) {
+                        tree = protocol.getService().tree(query.getSource());
+                    }
+                    answers[i] = protocol.execute(query, tree);
+                } else {
+                    answers[i] = protocol.execute(query);
+                }
+            } catch (IllegalArgumentException exp) {
+                answers[i] = "ERROR " + exp.getMessage();
+            }
+        }
+    }
+
+    private void invokeAll(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while answering queries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package ws.skif.server;
+
+import ws.skif.graph.models.StationIndex;
+
+import java.util.Arrays;
+
+/**
+ * Parsed route query.
+ * Vertexes are given by number (0, 1, ...) or by letter (A, B, ...) as in list files,
+ * or by station name if query is parsed with index of stations.
+ * <pre>
+ * DISTANCE a b      length of the minimal path
+ * PATH a b          vertexes of the minimal path
+ * ROUTE a-b-c       length of route by direct edges
+ * TRIPS a stops     number of cycles through vertex with at most given stops
+ * HOPS a b hops     number of routes with exact number of hops
+ * COUNT a length    number of routes to vertex shorter than given length
+ * CYCLE a           length of the shortest cycle through vertex
+ * </pre>
+ */
+public class Query {
+
+    public enum Type {
+        DISTANCE,
+        PATH,
+        ROUTE,
+        TRIPS,
+        HOPS,
+        COUNT,
+        CYCLE
+    }
+
+    private final Type type;                // Type of query
+    private final int[] vertexes;           // Vertexes of query
+    private final int value;                // Number of stops, hops or length, -1 if not used
+    private final boolean letters;          // Vertexes were given by letters
+    private final StationIndex stations;    // Vertexes were given by station names, else null
+
+    public Query(Type type, int[] vertexes, int value, boolean letters) {
+        this(type, vertexes, value, letters, null);
+    }
+
+    public Query(Type type, int[] vertexes, int value, boolean letters, StationIndex stations) {
+        this.type = type;
+        this.vertexes = vertexes;
+        this.value = value;
+        this.letters = letters;
+        this.stations = stations;
+    }
+
+    /**
+     * Parse query
+     *
+     * @param line Line of text
+     * @return Query
+     * @throws IllegalArgumentException for invalid query
+     */
+    public static Query parse(String line) {
+        return parse(line, null);
+    }
+
+    /**
+     * Parse query with station names.
+     * Names must not contain spaces, names in ROUTE must not contain '-'.
+     *
+     * @param line     Line of text
+     * @param stations Index of station names, null for numbers and letters
+     * @return Query
+     * @throws IllegalArgumentException for invalid query or unknown station
+     */
+    public static Query parse(String line, StationIndex stations) {
+        String[] items = line.trim().split("\\s+");
+        Type type;
+        try {
+            type = Type.valueOf(items[0].toUpperCase());
+        } catch (IllegalArgumentException exp) {
+            throw new IllegalArgumentException("Unknown query: " + items[0]);
+        }
+
+        boolean letters = stations == null && items.length > 1 && Character.isLetter(items[1].charAt(0));
+        switch (type) {
+            case DISTANCE:
+            case PATH:
+                expect(items, 3);
+                return new Query(type, new int[]{vertex(items[1], stations), vertex(items[2], stations)}, -1,
+                                 letters, stations);
+            case ROUTE: {
+                expect(items, 2);
+                String[] stops = items[1].split("-");
+                if (stops.length < 2) {
+                    throw new IllegalArgumentException("Route must have at least 2 vertexes: " + items[1]);
+                }
+                int[] vertexes = new int[stops.length];
+                for (int i = 0; i < stops.length; i++) {
+                    vertexes[i] = vertex(stops[i], stations);
+                }
+                return new Query(type, vertexes, -1, letters, stations);
+            }
+            case HOPS:
+                expect(items, 4);
+                return new Query(type, new int[]{vertex(items[1], stations), vertex(items[2], stations)},
+                                 number(items[3]), letters, stations);
+            case TRIPS:
+            case COUNT:
+                expect(items, 3);
+                return new Query(type, new int[]{vertex(items[1], stations)}, number(items[2]), letters, stations);
+            default:
+                expect(items, 2);
+                return new Query(type, new int[]{vertex(items[1], stations)}, -1, letters, stations);
+        }
+    }
+
+    private static void expect(String[] items, int count) {
+        if (items.length != count) {
+            throw new IllegalArgumentException(items[0].toUpperCase() + " expects " + (count - 1) + " arguments");
+        }
+    }
+
+    /**
+     * Vertex by number, letter or station name
+     *
+     * @param item
+     * @return
+     */
+    private static int vertex(String item, StationIndex stations) {
+        if (stations != null) {
+            int station = stations.find(item);
+            if (station == -1) {
+                throw new IllegalArgumentException("Unknown station: " + item);
+            }
+            return station;
+        }
+        if (item.length() == 1 && Character.isLetter(item.charAt(0))) {
+            return Character.toUpperCase(item.charAt(0)) - 'A';
+        }
+        return number(item);
+    }
+
+    private static int number(String item) {
+        try {
+            return Integer.parseInt(item);
+        } catch (NumberFormatException exp) {
+            throw new IllegalArgumentException("Not a number: " + item);
+        }
+    }
+
+    /**
+     * Name of vertex in the same notation as in query
+     *
+     * @param vertex
+     * @return
+     */
+    public String name(int vertex) {
+        if (stations != null) {
+            return stations.getName(vertex);
+        }
+        return letters && vertex < 26 ? String.valueOf((char) ('A' + vertex)) : String.valueOf(vertex);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Vertexes of query.
+     * Returned array is shared and must not be changed.
+     *
+     * @return
+     */
+    public int[] getVertexes() {
+        return vertexes;
+    }
+
+    /**
+     * Source vertex: the first vertex of query
+     *
+     * @return
+     */
+    public int getSource() {
+        return vertexes[0];
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "Query{" +
+                "type=" + type +
+                ", vertexes=" + Arrays.toString(vertexes) +
+                ", value=" + value +
+                '}';
+    }
+}
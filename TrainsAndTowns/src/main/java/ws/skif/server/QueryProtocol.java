@@ -0,0 +1,156 @@
+package ws.skif.server;
+
+import ws.skif.graph.models.Route;
+import ws.skif.graph.models.StationIndex;
+import ws.skif.graph.models.VertexPair;
+import ws.skif.graph.utils.RouteQueryService;
+import ws.skif.graph.utils.ShortestPathTree;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Text protocol of route queries: one query per line, one answer per line.
+ * Invalid query gets answer "ERROR message".
+ * Instance is thread-safe.
+ */
+public class QueryProtocol {
+
+    public static final String NO_ROUTE = "NO SUCH ROUTE";
+
+    private final RouteQueryService service;
+    private final StationIndex stations;    // Names of stations, null if vertexes are given by numbers or letters
+
+    public QueryProtocol(RouteQueryService service) {
+        this(service, null);
+    }
+
+    /**
+     * Constructor for graph of named stations
+     *
+     * @param service  Query service
+     * @param stations Index of station names, must not be changed after
+     */
+    public QueryProtocol(RouteQueryService service, StationIndex stations) {
+        this.service = service;
+        this.stations = stations;
+    }
+
+    public RouteQueryService getService() {
+        return service;
+    }
+
+    /**
+     * Parse query, vertexes are resolved by index of stations if it is given
+     *
+     * @param line Line of text
+     * @return Query
+     * @throws IllegalArgumentException for invalid query or unknown station
+     */
+    public Query parse(String line) {
+        return Query.parse(line, stations);
+    }
+
+    /**
+     * Parse and execute query
+     *
+     * @param line Line of text
+     * @return Answer
+     */
+    public String execute(String line) {
+        try {
+            return execute(parse(line));
+        } catch (IllegalArgumentException exp) {
+            return "ERROR " + exp.getMessage();
+        }
+    }
+
+    /**
+     * Execute query
+     *
+     * @param query Query
+     * @return Answer
+     * @throws IllegalArgumentException for invalid vertex
+     */
+    public String execute(Query query) {
+        int[] vertexes = query.getVertexes();
+        switch (query.getType()) {
+            case DISTANCE:
+                return formatLength(service.distance(vertexes[0], vertexes[1]));
+            case PATH: {
+                LinkedList<Integer> path = service.path(vertexes[0], vertexes[1]);
+                return path.isEmpty() ? NO_ROUTE : formatPath(query, path);
+            }
+            case ROUTE: {
+                List<VertexPair> route = new ArrayList<>();
+                for (int i = 0; i + 1 < vertexes.length; i++) {
+                    route.add(new VertexPair(vertexes[i], vertexes[i + 1]));
+                }
+                return service.exactRoute(route);
+            }
+            case TRIPS:
+                return String.valueOf(service.trips(vertexes[0], query.getValue(), -1).getRoutes().size());
+            case HOPS:
+                return String.valueOf(service.routesWithHops(vertexes[0], vertexes[1], query.getValue()));
+            case COUNT:
+                return String.valueOf(service.routesCount(vertexes[0], query.getValue()));
+            case CYCLE: {
+                double minRoute = Integer.MAX_VALUE;
+                for (Route route : service.trips(vertexes[0], -1, -1).getRoutes()) {
+                    if (route.getLength() < minRoute) {
+                        minRoute = route.getLength();
+                    }
+                }
+                return minRoute < Integer.MAX_VALUE ? String.valueOf(minRoute) : NO_ROUTE;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown query: " + query.getType());
+        }
+    }
+
+    /**
+     * Execute query, DISTANCE and PATH queries are answered by computed tree
+     *
+     * @param query Query
+     * @param tree  Minimal paths from source vertex of query
+     * @return Answer
+     * @throws IllegalArgumentException for invalid vertex
+     */
+    public String execute(Query query, ShortestPathTree tree) {
+        int[] vertexes = query.getVertexes();
+        switch (query.getType()) {
+            case DISTANCE:
+            case PATH:
+                if (tree.getSource() != vertexes[0]) {
+                    throw new IllegalArgumentException("Tree of vertex " + tree.getSource()
+                                                               + " for query from " + vertexes[0]);
+                }
+                if (vertexes[1] < 0 || vertexes[1] >= tree.getDistances().length) {
+                    throw new IllegalArgumentException("Invalid vertex: " + vertexes[1]);
+                }
+                double length = tree.getDistance(vertexes[1]);
+                if (query.getType() == Query.Type.DISTANCE) {
+                    return formatLength(length);
+                }
+                return length < Integer.MAX_VALUE ? formatPath(query, tree.getPath(vertexes[1])) : NO_ROUTE;
+            default:
+                return execute(query);
+        }
+    }
+
+    private static String formatLength(double length) {
+        return length < Integer.MAX_VALUE ? String.valueOf(length) : NO_ROUTE;
+    }
+
+    private static String formatPath(Query query, LinkedList<Integer> path) {
+        StringBuilder result = new StringBuilder();
+        for (Integer vertex : path) {
+            if (result.length() > 0) {
+                result.append('-');
+            }
+            result.append(query.name(vertex));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package ws.skif.server;
+
+import ws.skif.graph.utils.WorkspacePool;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Socket server of route queries.
+ * Graph and computed paths are loaded once and stay in memory between requests.
+ * Every connection is served in its own task: a virtual thread on Java 21 and later,
+ * a pooled platform thread otherwise. Queries of one connection are answered in order,
+ * see QueryProtocol for format. "QUIT" closes the connection.
+ * Threads of connections are short-lived, so queries borrow Dijkstra workspaces from a bounded pool
+ * instead of allocating thread-local ones for each connection.
+ */
+public class RouteServer implements Closeable {
+
+    private final QueryProtocol protocol;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final Thread acceptor;              // Thread accepting connections
+    private final WorkspacePool workspaces;     // Workspaces of running queries
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();     // Open connections
+
+    /**
+     * Start server on local address
+     *
+     * @param protocol Protocol with query service
+     * @param port     Port, 0 for any free port
+     * @throws IOException
+     */
+    public RouteServer(QueryProtocol protocol, int port) throws IOException {
+        this(protocol, port, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start server on local address
+     *
+     * @param protocol   Protocol with query service
+     * @param port       Port, 0 for any free port
+     * @param workspaces Number of queries running searches at once
+     * @throws IOException
+     */
+    public RouteServer(QueryProtocol protocol, int port, int workspaces) throws IOException {
+        this.protocol = protocol;
+        this.workspaces = new WorkspacePool(workspaces);
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.executor = newPerTaskExecutor();
+        this.acceptor = new Thread(this::acceptLoop, "route-server-" + getPort());
+        acceptor.start();
+    }
+
+    /**
+     * Executor with new virtual thread for each task, if Java supports them,
+     * otherwise cached pool of platform threads
+     *
+     * @return
+     */
+    static ExecutorService newPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException exp) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Wait until server is closed
+     *
+     * @throws InterruptedException
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                clients.add(socket);
+                try {
+                    executor.execute(() -> serve(socket));
+                } catch (RejectedExecutionException exp) {
+                    clients.remove(socket);
+                    socket.close();
+                }
+            } catch (SocketException exp) {
+                // Server socket is closed
+                break;
+            } catch (IOException exp) {
+                System.err.println(exp.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Answer queries of one connection
+     *
+     * @param socket
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(s.getOutputStream(),
+                                                                                     StandardCharsets.UTF_8)))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (line.trim().equalsIgnoreCase("QUIT")) {
+                    break;
+                }
+                String query = line;
+                out.println(workspaces.call(() -> protocol.execute(query)));
+                out.flush();
+            }
+        } catch (IOException exp) {
+            // Client has gone or server is closed, nothing to answer
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    /**
+     * Stop accepting connections, close open connections and wait a few seconds for running queries.
+     * Closing sockets wakes up handlers waiting for the next query of client.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        try {
+            acceptor.join();
+            for (Socket socket : clients) {
+                try {
+                    socket.close();
+                } catch (IOException exp) {
+                    // Socket is closed anyway
+                }
+            }
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ws.skif.graph.models;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+class CsrGraphTest {
+
+    private static Graph graph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString());
+    }
+
+    @Test
+    void compile() {
+        CsrGraph csr = graph.compile();
+
+        Assertions.assertTrue(csr.getCount() == 5);
+        Assertions.assertTrue(csr.getEdgeCount() == 25);
+        Assertions.assertTrue(!csr.isNegativeEdge());
+
+        for (int u = 0; u < graph.getCount(); u++) {
+            int e = csr.edgeStart(u);
+            for (Edge edge : graph.getListEdge(u)) {
+                Assertions.assertTrue(csr.getTargets()[e] == edge.getTo());
+                Assertions.assertTrue(csr.getWeights()[e] == edge.getWeight());
+                e++;
+            }
+            Assertions.assertTrue(e == csr.edgeEnd(u));
+        }
+    }
+
+    @Test
+    void withSource() {
+        CsrGraph csr = graph.compile().withSource();
+
+        Assertions.assertTrue(csr.getCount() == 6);
+        Assertions.assertTrue(csr.edgeEnd(5) - csr.edgeStart(5) == 5);
+        Assertions.assertTrue(csr.getWeights()[csr.edgeStart(5)] == 0);
+    }
+
+    @Test
+    void reweight() {
+        CsrGraph csr = graph.compile();
+        CsrGraph reweighted = csr.reweight(new double[]{0, -1, 0, 0, 0});
+
+        Assertions.assertTrue(reweighted.getTargets() == csr.getTargets());
+        Assertions.assertTrue(reweighted.getWeights()[csr.edgeStart(0) + 1] == 6d);
+        Assertions.assertTrue(reweighted.getWeights()[csr.edgeStart(1) + 2] == 3d);
+    }
+
+    @Test
+    void withEdge() {
+        CsrGraph csr = Graph.fromString("0,5.0,0,\n0,0,4.0,\n0,0,0,\n", true).compile();
+
+        CsrGraph changed = csr.withEdge(0, 1, 2);
+        Assertions.assertTrue(changed.getWeights(0)[changed.findEdge(0, 1)] == 2d);
+        Assertions.assertTrue(changed.getEdgeCount() == 2);
+        Assertions.assertTrue(csr.getWeights(0)[csr.findEdge(0, 1)] == 5d);
+
+        CsrGraph added = csr.withEdge(0, 2, -1);
+        Assertions.assertTrue(added.getEdgeCount() == 3);
+        Assertions.assertTrue(added.isNegativeEdge());
+        Assertions.assertTrue(added.getWeights(0)[added.findEdge(0, 2)] == -1d);
+        Assertions.assertTrue(added.getWeights(1)[added.findEdge(1, 2)] == 4d);
+        Assertions.assertTrue(csr.findEdge(0, 2) == -1);
+
+        CsrGraph removed = added.withoutEdge(0, 2);
+        Assertions.assertTrue(removed.getEdgeCount() == 2);
+        Assertions.assertTrue(!removed.isNegativeEdge());
+        Assertions.assertTrue(removed.findEdge(0, 2) == -1);
+        Assertions.assertTrue(removed.getWeights(1)[removed.findEdge(1, 2)] == 4d);
+        Assertions.assertTrue(removed.withoutEdge(0, 2) == removed);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> csr.withEdge(0, 3, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> csr.withEdge(0, 1, Double.NaN));
+    }
+
+    @Test
+    void sharedBlocks() {
+        // Chain of vertexes, changes must copy only the block of changed vertex
+        int size = 1000;
+        Graph chain = new Graph();
+        for (int v = 0; v < size; v++) {
+            chain.addVertex();
+        }
+        for (int v = 0; v + 1 < size; v++) {
+            chain.addEdge(v, v + 1, 1);
+        }
+        CsrGraph csr = chain.compile();
+
+        CsrGraph changed = csr.withEdge(10, 11, 2);
+        assertSharedBlocks(csr, changed, 10);
+        Assertions.assertTrue(changed.getWeights(10)[changed.findEdge(10, 11)] == 2d);
+        Assertions.assertTrue(csr.getWeights(10)[csr.findEdge(10, 11)] == 1d);
+
+        CsrGraph added = changed.withEdge(500, 10, -2);
+        assertSharedBlocks(changed, added, 500);
+        Assertions.assertTrue(added.getEdgeCount() == size);
+        Assertions.assertTrue(added.isNegativeEdge());
+
+        CsrGraph removed = added.withoutEdge(500, 10);
+        assertSharedBlocks(added, removed, 500);
+        Assertions.assertTrue(removed.getEdgeCount() == size - 1);
+        Assertions.assertTrue(!removed.isNegativeEdge());
+
+        // Flat arrays of changed graph are the same as of compiled graph
+        chain.addEdge(500, 10, -2);
+        CsrGraph expected = chain.compile();
+        Assertions.assertTrue(Arrays.equals(added.getOffsets(), expected.getOffsets()));
+        Assertions.assertTrue(Arrays.equals(added.getTargets(), expected.getTargets()));
+        Assertions.assertTrue(Arrays.equals(added.withEdge(10, 11, 1).getWeights(), expected.getWeights()));
+    }
+
+    /**
+     * Edges of vertexes outside of the block of changed vertex are the same arrays
+     */
+    private static void assertSharedBlocks(CsrGraph before, CsrGraph after, int changedVertex) {
+        int block = changedVertex / CsrGraph.BLOCK_SIZE;
+        for (int v = 0; v < before.getCount(); v++) {
+            boolean shared = after.getTargets(v) == before.getTargets(v)
+                    && after.getWeights(v) == before.getWeights(v)
+                    && after.edgeStart(v) == before.edgeStart(v);
+            Assertions.assertTrue(shared == (v / CsrGraph.BLOCK_SIZE != block));
+        }
+    }
+}
@@ -10,7 +10,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -93,4 +95,123 @@ class GraphTest {
         Assertions.assertTrue(graph.getCount() == 5);
         Assertions.assertTrue(graph.toString().equals(value));
     }
-}
\ No newline at end of file
+
+    @Test
+    void fromStringSparse() {
+        String value =
+                "0,5.0,0,5.0,7.0," + System.lineSeparator()
+                        + "0,0,4.0,0,0," + System.lineSeparator()
+                        + "0,0,0,8.0,2.0," + System.lineSeparator()
+                        + "0,0,8.0,0,6.0," + System.lineSeparator()
+                        + "0,3.0,0,0,0," + System.lineSeparator();
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        Graph graph = Graph.fromString(str.toString(), true);
+
+        Assertions.assertTrue(graph.isSparse());
+        Assertions.assertTrue(graph.getCount() == 5);
+        Assertions.assertTrue(graph.getEdgeCount() == 9);
+        Assertions.assertTrue(graph.toString().equals(value));
+    }
+
+    @Test
+    void removeVertex() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        Graph graph = Graph.fromString(str.toString(), true);
+        graph.setCoordinates(3, 1.0, 2.0);
+        graph.removeVertex(2);
+        graph.removeVertex(2);
+
+        // Indexes are not changed, edges of removed vertex are skipped
+        Assertions.assertTrue(graph.getCount() == 5);
+        Assertions.assertTrue(graph.getRemovedCount() == 1);
+        Assertions.assertTrue(graph.isRemoved(2));
+        Assertions.assertTrue(graph.getEdgeCount() == 5);
+        Assertions.assertTrue(!graph.getVertexAdjacent(3).contains(2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> graph.addEdge(0, 2, 1));
+
+        CsrGraph csr = graph.compile();
+        Assertions.assertTrue(csr.getCount() == 5);
+        Assertions.assertTrue(csr.getEdgeCount() == 5);
+        Assertions.assertTrue(csr.findEdge(1, 2) == -1);
+        Assertions.assertTrue(csr.edgeEnd(2) == csr.edgeStart(2));
+        Assertions.assertTrue(csr.getWeights(3)[csr.findEdge(3, 4)] == 6.0);
+
+        Graph compacted = graph.compact();
+        int[] indexes = graph.getCompactIndexes();
+        Assertions.assertTrue(indexes[2] == -1 && indexes[3] == 2 && indexes[4] == 3);
+        Assertions.assertTrue(compacted.getCount() == 4);
+        Assertions.assertTrue(compacted.getRemovedCount() == 0);
+        Assertions.assertTrue(compacted.getEdgeCount() == 5);
+        Assertions.assertTrue(compacted.getLatitude(2) == 1.0);
+        Assertions.assertTrue(compacted.getVertexAdjacent(2).contains(3));
+        Assertions.assertTrue(compacted.toString().equals(
+                "0,5.0,5.0,7.0," + System.lineSeparator()
+                        + "0,0,0,0," + System.lineSeparator()
+                        + "0,0,0,6.0," + System.lineSeparator()
+                        + "0,3.0,0,0," + System.lineSeparator()));
+    }
+
+    @Test
+    void predecessors() {
+        Graph graph = new Graph();
+        int size = 500;
+        for (int i = 0; i < size; i++) {
+            graph.addVertex();
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int from = random.nextInt(size);
+            int to = random.nextInt(size);
+            if (!graph.isRemoved(from) && !graph.isRemoved(to)) {
+                graph.addEdge(from, to, 1 + random.nextInt(20));
+            }
+            if (i % 1000 == 0) {
+                graph.removeVertex(random.nextInt(size));
+            }
+        }
+        graph.addEdge(0, 0, 1);
+        graph.removeVertex(0);
+
+        // Index is compared with scan of all edges
+        int total = 0;
+        for (int v = 0; v < size; v++) {
+            int[] expected = new int[size];
+            for (int u = 0; u < size; u++) {
+                for (Edge edge : graph.getListEdge(u)) {
+                    if (edge.getTo() == v && !edge.isRemoved()) {
+                        expected[u]++;
+                    }
+                }
+            }
+            int[] actual = new int[size];
+            for (int u : graph.getPredecessors(v)) {
+                actual[u]++;
+            }
+            Assertions.assertTrue(Arrays.equals(expected, actual));
+            Assertions.assertTrue(graph.getInDegree(v) == graph.getPredecessors(v).length);
+            total += graph.getInDegree(v);
+        }
+        Assertions.assertTrue(total == graph.getEdgeCount());
+        Assertions.assertTrue(graph.getReverseMemory() > 0);
+
+        Graph compacted = graph.compact();
+        int[] indexes = graph.getCompactIndexes();
+        for (int v = 0; v < size; v++) {
+            if (indexes[v] != -1) {
+                Assertions.assertTrue(compacted.getInDegree(indexes[v]) == graph.getInDegree(v));
+            }
+        }
+    }
+}
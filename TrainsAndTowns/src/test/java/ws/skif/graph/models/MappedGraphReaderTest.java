@@ -0,0 +1,166 @@
+package ws.skif.graph.models;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class MappedGraphReaderTest {
+
+    private static Path write(String content) throws IOException {
+        Path file = Files.createTempFile("graph", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    private static void assertSame(CsrGraph expected, CsrGraph actual) {
+        Assertions.assertTrue(expected.getCount() == actual.getCount());
+        Assertions.assertTrue(expected.isNegativeEdge() == actual.isNegativeEdge());
+        Assertions.assertTrue(Arrays.equals(expected.getOffsets(), actual.getOffsets()));
+        Assertions.assertTrue(Arrays.equals(expected.getTargets(), actual.getTargets()));
+        Assertions.assertTrue(Arrays.equals(expected.getWeights(), actual.getWeights()));
+    }
+
+    @Test
+    void readMatrix() throws IOException {
+        String str = "0,5.0,0,5.0,7.0,\n"
+                + "0,0,4.0,0,0,\r\n"
+                + " 0, 0, 0, 8.0, 2.0 \n"
+                + "0,0,8.0,0,-6.5,,\n"
+                + "0,3.0,0,0,0, \n"
+                + "\n"
+                + "1,2,3\n";
+        String file = write(str).toString();
+
+        MappedGraphReader reader = new MappedGraphReader();
+        for (boolean sparse : new boolean[]{false, true}) {
+            CsrGraph graph = reader.readMatrix(file, sparse);
+            assertSame(Graph.fromMatrix(file, sparse).compile(), graph);
+            Assertions.assertTrue(graph.getCount() == 5);
+            Assertions.assertTrue(graph.isNegativeEdge());
+        }
+        Assertions.assertTrue(reader.getBytes() == str.length());
+    }
+
+    @Test
+    void readList() throws IOException {
+        String file = write("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7,\nab-1\n").toString();
+
+        MappedGraphReader reader = new MappedGraphReader();
+        for (boolean sparse : new boolean[]{false, true}) {
+            assertSame(Graph.fromList(file, sparse).compile(), reader.readList(file, sparse));
+        }
+
+        // Vertexes do not have to appear in order
+        CsrGraph graph = reader.readList(write("AE7, EB3\n").toString(), true);
+        Assertions.assertTrue(graph.getCount() == 5);
+        Assertions.assertTrue(graph.getWeights(4)[graph.findEdge(4, 1)] == 3d);
+    }
+
+    @Test
+    void readListParallel() throws IOException {
+        // Large enough for many chunks, with line breaks, trailing commas and an empty line at the end of data
+        Random random = new Random(18);
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < 60000; i++) {
+            str.append((char) ('A' + random.nextInt(26)))
+                    .append((char) ('A' + random.nextInt(26)))
+                    .append(random.nextInt(100) - 10);
+            str.append(random.nextInt(20) == 0 ? (random.nextBoolean() ? ",\n" : "\r\n") : ", ");
+        }
+        str.append("AB1\n\nAB5, garbage\n");
+        String file = write(str.toString()).toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            MappedGraphReader reader = new MappedGraphReader();
+            for (boolean sparse : new boolean[]{false, true}) {
+                assertSame(reader.readList(file, sparse), reader.readList(file, sparse, executor));
+            }
+            Assertions.assertTrue(reader.getBytes() == str.length());
+
+            // Small file is one chunk, null executor reads in current thread
+            String small = write("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7\n").toString();
+            assertSame(reader.readList(small, true), reader.readList(small, true, executor));
+            assertSame(reader.readList(small, true), reader.readList(small, true, null));
+
+            // Error before the end of data is reported
+            String invalid = write(str.toString().replaceFirst(", ", ", B, ")).toString();
+            Assertions.assertThrows(NumberFormatException.class, () -> reader.readList(invalid, true, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void readStations() throws IOException {
+        String file = write("Kyiv,Lviv,5\nLviv, Odesa ,4\r\nOdesa,Kharkiv,8\nKharkiv,Odesa,8\n"
+                                    + "Kharkiv,Dnipro,6\nKyiv,Kharkiv,5\nOdesa,Dnipro,2\nDnipro,Lviv,3\n"
+                                    + "Kyiv,Dnipro,7\n\nRivne,Lutsk,1\n").toString();
+
+        StationIndex stations = new StationIndex();
+        CsrGraph graph = new MappedGraphReader().readStations(file, true, stations);
+        Assertions.assertTrue(stations.size() == 5);
+        Assertions.assertTrue(stations.find("Odesa") == 2);
+        Assertions.assertTrue(stations.find("Rivne") == -1);
+        Assertions.assertTrue(graph.getWeights(stations.find("Dnipro"))[graph.findEdge(stations.find("Dnipro"), 1)] == 3d);
+
+        StationIndex copy = new StationIndex();
+        assertSame(Graph.fromStations(file, true, copy).compile(), graph);
+        for (int i = 0; i < stations.size(); i++) {
+            Assertions.assertTrue(copy.getName(i).equals(stations.getName(i)));
+        }
+
+        String invalid = write("Kyiv,Lviv\n").toString();
+        Assertions.assertThrows(NumberFormatException.class,
+                                () -> new MappedGraphReader().readStations(invalid, true, new StationIndex()));
+        Assertions.assertThrows(NumberFormatException.class,
+                                () -> Graph.fromStations(invalid, true, new StationIndex()));
+    }
+
+    @Test
+    void numbers() throws IOException {
+        Random random = new Random(17);
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 200; j++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        str.append(random.nextInt(1000));
+                        break;
+                    case 1:
+                        str.append(random.nextDouble() * 1000);
+                        break;
+                    case 2:
+                        str.append(String.format("%.3f", random.nextDouble() * 100).replace(',', '.'));
+                        break;
+                    default:
+                        str.append(random.nextDouble() * 1e-5);
+                        break;
+                }
+                str.append(',');
+            }
+            str.append('\n');
+        }
+        String file = write(str.toString()).toString();
+
+        assertSame(Graph.fromMatrix(file, true).compile(), new MappedGraphReader().readMatrix(file, true));
+    }
+
+    @Test
+    void invalidFormat() throws IOException {
+        String matrix = write("0,x,1\n").toString();
+        String list = write("AB5, B4\n").toString();
+        MappedGraphReader reader = new MappedGraphReader();
+        Assertions.assertThrows(NumberFormatException.class, () -> reader.readMatrix(matrix, false));
+        Assertions.assertThrows(NumberFormatException.class, () -> reader.readList(list, false));
+    }
+}
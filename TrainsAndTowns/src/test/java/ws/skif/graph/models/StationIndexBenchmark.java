@@ -0,0 +1,57 @@
+package ws.skif.graph.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lookup cost of StationIndex compared with HashMap of String names.
+ * It is not a test and is not run by the build, start it after test-compile:
+ * java -cp target/classes:target/test-classes ws.skif.graph.models.StationIndexBenchmark [names] [rounds]
+ * Each round interns all names into a new index and finds all of them,
+ * the first half of rounds is warm-up and is not reported.
+ */
+class StationIndexBenchmark {
+
+    private static volatile long sink;      // Keeps results, so loops are not removed
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "Station " + Integer.toHexString(i * 0x9E3779B1) + " " + i;
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            StationIndex index = new StationIndex();
+            long start = System.nanoTime();
+            for (String name : names) {
+                sink += index.intern(name);
+            }
+            long intern = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String name : names) {
+                sink += index.find(name);
+            }
+            long find = System.nanoTime() - start;
+
+            Map<String, Integer> map = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                map.put(names[i], i);
+            }
+            start = System.nanoTime();
+            for (String name : names) {
+                sink += map.get(name);
+            }
+            long get = System.nanoTime() - start;
+
+            if (round >= rounds / 2) {
+                System.out.println(String.format("intern %.0f ns, find %.0f ns, HashMap.get %.0f ns, index %d bytes",
+                                                 (double) intern / count, (double) find / count,
+                                                 (double) get / count, index.getMemory()));
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ws.skif.graph.models;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+class StationIndexTest {
+
+    @Test
+    void intern() {
+        StationIndex stations = new StationIndex();
+        Assertions.assertTrue(stations.intern("Kyiv") == 0);
+        Assertions.assertTrue(stations.intern("Lviv") == 1);
+        Assertions.assertTrue(stations.intern(new StringBuilder("Kyiv")) == 0);
+        Assertions.assertTrue(stations.intern("Київ") == 2);
+        Assertions.assertTrue(stations.size() == 3);
+
+        Assertions.assertTrue(stations.find("Lviv") == 1);
+        Assertions.assertTrue(stations.find("Київ") == 2);
+        Assertions.assertTrue(stations.find("Odesa") == -1);
+        Assertions.assertTrue(stations.find("") == -1);
+        Assertions.assertTrue(stations.getName(2).equals("Київ"));
+
+        byte[] data = "  Lviv,Odesa ".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertTrue(stations.intern(ByteBuffer.wrap(data), 2, 6) == 1);
+        Assertions.assertTrue(stations.intern(ByteBuffer.wrap(data), 7, 12) == 3);
+        Assertions.assertTrue(stations.getName(3).equals("Odesa"));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> stations.intern(""));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> stations.getName(4));
+    }
+
+    @Test
+    void manyStations() {
+        StationIndex stations = new StationIndex();
+        int count = 200000;
+        for (int i = 0; i < count; i++) {
+            Assertions.assertTrue(stations.intern("ST" + Integer.toString(i, 36)) == i);
+        }
+        Assertions.assertTrue(stations.size() == count);
+        for (int i = 0; i < count; i++) {
+            String name = "ST" + Integer.toString(i, 36);
+            Assertions.assertTrue(stations.find(name) == i);
+            Assertions.assertTrue(stations.getName(i).equals(name));
+        }
+        Assertions.assertTrue(stations.find("ST-1") == -1);
+    }
+}
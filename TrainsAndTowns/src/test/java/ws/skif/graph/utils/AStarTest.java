@@ -0,0 +1,101 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+class AStarTest {
+
+    private static CsrGraph graph;
+
+    /**
+     * Grid of stations along meridians and parallels, 10 km between neighbours
+     */
+    @BeforeAll
+    public static void beforeAll() {
+        int size = 6;
+        double step = 10 / (Math.PI * GreatCircleHeuristic.EARTH_RADIUS / 180);
+        Graph g = new Graph();
+        for (int i = 0; i < size * size; i++) {
+            g.addVertex();
+        }
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int v = r * size + c;
+                g.setCoordinates(v, r * step, c * step);
+                if (c + 1 < size) {
+                    g.addEdge(v, v + 1, 12);
+                    g.addEdge(v + 1, v, 12);
+                }
+                if (r + 1 < size) {
+                    g.addEdge(v, v + size, 15);
+                    g.addEdge(v + size, v, 15);
+                }
+            }
+        }
+        graph = g.compile();
+    }
+
+    @Test
+    void calibrate() {
+        GreatCircleHeuristic heuristic = GreatCircleHeuristic.calibrate(graph);
+        Assertions.assertTrue(heuristic.getWeightPerKm() > 1.1 && heuristic.getWeightPerKm() <= 1.2);
+        Assertions.assertTrue(Math.abs(heuristic.kilometers(0, 1) - 10) < 0.01);
+    }
+
+    @Test
+    void distance() {
+        AStar aStar = new AStar(graph, GreatCircleHeuristic.calibrate(graph));
+        Dijkstra dijkstra = new Dijkstra(graph);
+        double[] distances = dijkstra.getDistances(0);
+
+        for (int j = 0; j < graph.getCount(); j++) {
+            Assertions.assertTrue(Math.abs(aStar.distance(0, j) - distances[j]) < 1e-9);
+        }
+        Assertions.assertTrue(aStar.getPath(0, 35).size() == 11);
+
+        aStar.distance(0, 5);
+        int settled = aStar.getSettledCount();
+        Assertions.assertTrue(settled < graph.getCount() / 2);
+    }
+
+    @Test
+    void graphUtils() {
+        GraphUtils utils = new GraphUtils(graph, 1);
+        double length = utils.findPathLength(0, 35);
+        utils.setHeuristic(GreatCircleHeuristic.calibrate(graph));
+
+        Assertions.assertTrue(utils.findPathLength(0, 35) == length);
+        Assertions.assertTrue(utils.findPath(0, 35).size() == 11);
+    }
+
+    @Test
+    void uncoordinatedHub() {
+        // s and t are 100 km apart, the hub without coordinates joins them with length 2
+        double step = 100 / (Math.PI * GreatCircleHeuristic.EARTH_RADIUS / 180);
+        Graph g = new Graph();
+        for (int i = 0; i < 4; i++) {
+            g.addVertex();
+        }
+        g.setCoordinates(0, 0, 0);
+        g.setCoordinates(1, 0, step);
+        g.setCoordinates(3, 0, step / 2);
+        g.addEdge(0, 1, 100);
+        g.addEdge(0, 2, 1);
+        g.addEdge(2, 1, 1);
+        g.addEdge(0, 3, 50);
+        g.addEdge(3, 1, 50);
+        CsrGraph hub = g.compile();
+
+        GreatCircleHeuristic heuristic = GreatCircleHeuristic.calibrate(hub);
+        Assertions.assertFalse(heuristic.hasCoordinates(2));
+        Assertions.assertTrue(heuristic.getWeightPerKm() == 0);
+        Assertions.assertTrue(heuristic.estimate(0, 1) <= 2);
+
+        AStar aStar = new AStar(hub, heuristic);
+        Assertions.assertTrue(aStar.distance(0, 1) == 2);
+        Assertions.assertTrue(aStar.getPath(0, 1).size() == 3);
+    }
+}
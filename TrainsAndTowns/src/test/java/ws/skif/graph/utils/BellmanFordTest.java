@@ -0,0 +1,110 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.List;
+
+class BellmanFordTest {
+
+    private static CsrGraph graph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString(), true).compile();
+    }
+
+    @Test
+    void getDistances() {
+        BellmanFord bellmanFord = new BellmanFord(graph);
+        Dijkstra dijkstra = new Dijkstra(graph);
+        for (int i = 0; i < graph.getCount(); i++) {
+            double[] expected = dijkstra.getDistances(i);
+            double[] distances = bellmanFord.getDistances(i);
+            for (int j = 0; j < graph.getCount(); j++) {
+                Assertions.assertTrue(distances[j] == expected[j]);
+            }
+            Assertions.assertTrue(bellmanFord.getNegativeCycle() == null);
+        }
+    }
+
+    @Test
+    void negativeEdges() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,4.0,2.0,0,\n");
+        str.append("0,0,0,1.0,\n");
+        str.append("0,-3.0,0,5.0,\n");
+        str.append("0,0,0,0,\n");
+
+        BellmanFord bellmanFord = new BellmanFord(Graph.fromString(str.toString(), true));
+        double[] distances = bellmanFord.getDistances(0);
+        Assertions.assertTrue(distances[1] == -1d);
+        Assertions.assertTrue(distances[3] == 0d);
+        Assertions.assertTrue(bellmanFord.getNegativeCycle() == null);
+    }
+
+    @Test
+    void getPotentials() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,4.0,2.0,0,\n");
+        str.append("0,0,0,1.0,\n");
+        str.append("0,-3.0,0,5.0,\n");
+        str.append("0,0,0,0,\n");
+
+        CsrGraph g = Graph.fromString(str.toString(), true).compile();
+        BellmanFord search = new BellmanFord(g);
+        double[] potentials = search.getPotentials();
+        Assertions.assertTrue(potentials.length == 4);
+        Assertions.assertTrue(potentials[1] == -3d);
+
+        // The next run does not change returned potentials
+        search.getDistances(0);
+        Assertions.assertTrue(potentials[0] == 0d && potentials[1] == -3d);
+
+        // Reweighting on the fly gives the same distances as Bellman-Ford
+        Dijkstra dijkstra = new Dijkstra(g, potentials);
+        BellmanFord bellmanFord = new BellmanFord(g);
+        for (int i = 0; i < g.getCount(); i++) {
+            double[] expected = bellmanFord.getDistances(i);
+            double[] distances = dijkstra.getDistances(i);
+            for (int j = 0; j < g.getCount(); j++) {
+                Assertions.assertTrue(distances[j] == expected[j]);
+                Assertions.assertTrue(dijkstra.distance(i, j) == expected[j]);
+            }
+        }
+    }
+
+    @Test
+    void negativeCycle() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,1.0,0,0,\n");
+        str.append("0,0,2.0,0,\n");
+        str.append("0,0,0,1.0,\n");
+        str.append("0,-4.0,0,0,\n");
+
+        CsrGraph g = Graph.fromString(str.toString(), true).compile();
+        BellmanFord bellmanFord = new BellmanFord(g);
+        bellmanFord.getDistances(0);
+
+        List<Integer> cycle = bellmanFord.getNegativeCycle();
+        Assertions.assertTrue(cycle != null);
+        Assertions.assertTrue(cycle.size() == 4);
+        Assertions.assertTrue(cycle.get(0).equals(cycle.get(cycle.size() - 1)));
+
+        double length = 0;
+        for (int i = 0; i + 1 < cycle.size(); i++) {
+            length += g.getWeights(cycle.get(i))[g.findEdge(cycle.get(i), cycle.get(i + 1))];
+        }
+        Assertions.assertTrue(length == -1d);
+    }
+}
@@ -0,0 +1,48 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+class BidirectionalDijkstraTest {
+
+    private static CsrGraph graph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString(), true).compile();
+    }
+
+    @Test
+    void distance() {
+        Dijkstra dijkstra = new Dijkstra(graph);
+        BidirectionalDijkstra bidirectional = new BidirectionalDijkstra(graph);
+        for (int i = 0; i < graph.getCount(); i++) {
+            double[] distances = dijkstra.getDistances(i);
+            for (int j = 0; j < graph.getCount(); j++) {
+                Assertions.assertTrue(bidirectional.distance(i, j) == distances[j]);
+                Assertions.assertTrue(dijkstra.distance(i, j) == distances[j]);
+            }
+        }
+    }
+
+    @Test
+    void getPath() {
+        BidirectionalDijkstra bidirectional = new BidirectionalDijkstra(graph);
+        Assertions.assertTrue(bidirectional.getPath(0, 2).size() == 3);
+        Assertions.assertTrue(bidirectional.getPath(0, 2).getFirst() == 0);
+        Assertions.assertTrue(bidirectional.getPath(0, 2).getLast() == 2);
+        Assertions.assertTrue(bidirectional.getPath(4, 3).size() == 4);
+        Assertions.assertTrue(bidirectional.getPath(1, 0).size() == 1);
+        Assertions.assertTrue(bidirectional.getPath(2, 2).size() == 1);
+    }
+}
@@ -0,0 +1,109 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.LinkedList;
+
+class ContractionHierarchyTest {
+
+    private static CsrGraph graph;
+    private static CsrGraph grid;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString(), true).compile();
+
+        // Grid with one way streets and different weights
+        int size = 7;
+        Graph g = new Graph();
+        for (int i = 0; i < size * size; i++) {
+            g.addVertex();
+        }
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int v = r * size + c;
+                if (c + 1 < size) {
+                    g.addEdge(v, v + 1, 1 + (v * 7) % 5);
+                    if (r % 2 == 0) {
+                        g.addEdge(v + 1, v, 2 + (v * 3) % 4);
+                    }
+                }
+                if (r + 1 < size) {
+                    g.addEdge(v, v + size, 1 + (v * 11) % 6);
+                    g.addEdge(v + size, v, 3);
+                }
+            }
+        }
+        grid = g.compile();
+    }
+
+    @Test
+    void distance() {
+        for (CsrGraph g : new CsrGraph[]{graph, grid}) {
+            ContractionHierarchy hierarchy = new ContractionHierarchy(g);
+            Dijkstra dijkstra = new Dijkstra(g);
+            for (int i = 0; i < g.getCount(); i++) {
+                double[] distances = dijkstra.getDistances(i);
+                for (int j = 0; j < g.getCount(); j++) {
+                    Assertions.assertTrue(hierarchy.distance(i, j) == distances[j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void getPath() {
+        ContractionHierarchy hierarchy = new ContractionHierarchy(grid);
+        Dijkstra dijkstra = new Dijkstra(grid);
+        for (int i = 0; i < grid.getCount(); i += 5) {
+            for (int j = 0; j < grid.getCount(); j += 3) {
+                LinkedList<Integer> path = hierarchy.getPath(i, j);
+                Assertions.assertTrue(path.getFirst() == i);
+                Assertions.assertTrue(path.getLast() == j);
+
+                // Path consists of original edges only
+                double length = 0;
+                Integer previous = null;
+                for (Integer vertex : path) {
+                    if (previous != null) {
+                        int edge = grid.findEdge(previous, vertex);
+                        Assertions.assertTrue(edge != -1);
+                        length += grid.getWeights(previous)[edge];
+                    }
+                    previous = vertex;
+                }
+                Assertions.assertTrue(length == dijkstra.distance(i, j));
+            }
+        }
+
+        hierarchy = new ContractionHierarchy(graph);
+        Assertions.assertTrue(hierarchy.getPath(4, 3).size() == 4);
+        Assertions.assertTrue(hierarchy.getPath(1, 0).size() == 1);
+        Assertions.assertTrue(hierarchy.getPath(2, 2).size() == 1);
+    }
+
+    @Test
+    void statistics() {
+        ContractionHierarchy hierarchy = new ContractionHierarchy(grid);
+        Assertions.assertTrue(hierarchy.getEdgeCount() <= grid.getEdgeCount() + hierarchy.getShortcutCount());
+        Assertions.assertTrue(hierarchy.getIndexSize() > 0);
+        Assertions.assertTrue(hierarchy.getPreprocessingTime() >= 0);
+    }
+
+    @Test
+    void negativeEdges() {
+        Graph g = Graph.fromString("0,-1.0,\n2.0,0,\n", true);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ContractionHierarchy(g));
+    }
+}
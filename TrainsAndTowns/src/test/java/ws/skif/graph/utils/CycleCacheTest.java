@@ -0,0 +1,78 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class CycleCacheTest {
+
+    private static CsrGraph graph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString()).compile();
+    }
+
+    private static List<List<Integer>> cycles(CycleCache cache, int vertex, int maxStops) {
+        List<List<Integer>> result = new ArrayList<>();
+        cache.forEachCycle(vertex, maxStops, (cycle, length) -> {
+            List<Integer> list = new ArrayList<>();
+            for (int i = 0; i < length; i++) {
+                list.add(cycle[i]);
+            }
+            result.add(list);
+            return true;
+        });
+        return result;
+    }
+
+    @Test
+    void reuse() {
+        CycleCache cache = new CycleCache(graph, 100);
+        List<List<Integer>> found = cycles(cache, 2, -1);
+        // 1-2-4-1, 2-3-2 and 1-2-3-4-1
+        Assertions.assertTrue(found.size() == 3);
+        Assertions.assertTrue(found.contains(Arrays.asList(2, 3, 2)));
+        Assertions.assertTrue(cache.getCount() == 1);
+
+        // Second request is answered from kept cycles, the limit of stops filters them
+        Assertions.assertTrue(cycles(cache, 2, -1).equals(found));
+        Assertions.assertTrue(cycles(cache, 2, 3).size() == 2);
+        Assertions.assertTrue(cache.getCount() == 1);
+
+        // Bounded search is not kept
+        Assertions.assertTrue(cycles(cache, 3, 2).size() == 1);
+        Assertions.assertTrue(cache.getCount() == 1);
+    }
+
+    @Test
+    void limit() {
+        // Cycles through 2 have 12 vertexes, they do not fit
+        CycleCache small = new CycleCache(graph, 10);
+        Assertions.assertTrue(cycles(small, 2, -1).size() == 3);
+        Assertions.assertTrue(small.getCount() == 0);
+
+        // The least recently used vertexes are dropped: 2 for 4, then 0 and 4 for 2
+        CycleCache cache = new CycleCache(graph, 12);
+        cycles(cache, 2, -1);
+        Assertions.assertTrue(cycles(cache, 0, -1).isEmpty());
+        Assertions.assertTrue(cache.getCount() == 2);
+        Assertions.assertTrue(cycles(cache, 4, -1).size() == 2);
+        Assertions.assertTrue(cache.getCount() == 2);
+        Assertions.assertTrue(cycles(cache, 2, -1).size() == 3);
+        Assertions.assertTrue(cache.getCount() == 1);
+    }
+}
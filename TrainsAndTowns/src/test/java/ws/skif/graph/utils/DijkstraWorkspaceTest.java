@@ -0,0 +1,78 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class DijkstraWorkspaceTest {
+
+    @Test
+    void heapOrder() {
+        DijkstraWorkspace workspace = new DijkstraWorkspace(8);
+        workspace.reset(8);
+        workspace.addSource(0);
+        workspace.extractMin();
+
+        workspace.relax(0, 3, 7);
+        workspace.relax(0, 1, 5);
+        workspace.relax(0, 2, 5);
+        workspace.relax(0, 4, 9);
+        workspace.relax(1, 4, 2);
+
+        Assertions.assertTrue(workspace.extractMin() == 4);
+        Assertions.assertTrue(workspace.extractMin() == 1);
+        Assertions.assertTrue(workspace.extractMin() == 2);
+        Assertions.assertTrue(workspace.extractMin() == 3);
+        Assertions.assertTrue(workspace.isEmpty());
+        Assertions.assertTrue(workspace.previous(4) == 1);
+    }
+
+    @Test
+    void reset() {
+        DijkstraWorkspace workspace = new DijkstraWorkspace(2);
+        workspace.reset(2);
+        workspace.addSource(0);
+        workspace.relax(0, 1, 3);
+        Assertions.assertTrue(workspace.distance(1) == 3d);
+
+        workspace.reset(4);
+        Assertions.assertTrue(workspace.distance(1) == Double.POSITIVE_INFINITY);
+        Assertions.assertTrue(workspace.previous(1) == -1);
+        Assertions.assertTrue(!workspace.isSettled(0));
+        Assertions.assertTrue(workspace.isEmpty());
+    }
+
+    @Test
+    void pool() throws Exception {
+        WorkspacePool pool = new WorkspacePool(1);
+        DijkstraWorkspace own = DijkstraWorkspace.forThread(4);
+
+        DijkstraWorkspace borrowed = pool.call(() -> {
+            Assertions.assertTrue(pool.getFreeCount() == 0);
+            // Nested task uses the same workspaces
+            DijkstraWorkspace workspace = DijkstraWorkspace.forThread(4);
+            try {
+                Assertions.assertTrue(pool.call(() -> DijkstraWorkspace.forThread(4)) == workspace);
+            } catch (InterruptedException exp) {
+                throw new IllegalStateException(exp);
+            }
+            return workspace;
+        });
+        Assertions.assertTrue(borrowed != own);
+        Assertions.assertTrue(pool.getFreeCount() == 1);
+        Assertions.assertTrue(DijkstraWorkspace.forThread(4) == own);
+
+        // Another thread gets the returned workspaces
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<DijkstraWorkspace> other = executor.submit(() -> pool.call(() -> DijkstraWorkspace.forThread(4)));
+            Assertions.assertTrue(other.get() == borrowed);
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new WorkspacePool(0));
+    }
+}
@@ -0,0 +1,195 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+class ElementaryCyclesTest {
+
+    private static Graph graph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString());
+    }
+
+    /**
+     * All elementary cycles by plain search from each least vertex
+     */
+    private static void bruteForce(CsrGraph g, int start, List<Integer> path, boolean[] onPath,
+                                   List<List<Integer>> result) {
+        int v = path.get(path.size() - 1);
+        for (int e = g.edgeStart(v); e < g.edgeEnd(v); e++) {
+            int w = g.getTargets(v)[e];
+            if (w == start) {
+                List<Integer> cycle = new ArrayList<>(path);
+                cycle.add(start);
+                result.add(cycle);
+            } else if (w > start && !onPath[w]) {
+                onPath[w] = true;
+                path.add(w);
+                bruteForce(g, start, path, onPath, result);
+                path.remove(path.size() - 1);
+                onPath[w] = false;
+            }
+        }
+    }
+
+    private static List<String> sorted(List<List<Integer>> cycles) {
+        List<String> result = new ArrayList<>();
+        for (List<Integer> cycle : cycles) {
+            result.add(cycle.toString());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    void findAllCycles() {
+        ElementaryCycles search = new ElementaryCycles(graph);
+        List<List<Integer>> list = search.findAllCycles();
+        Assertions.assertTrue(list != null);
+        Assertions.assertTrue(list.size() == 3);
+        Assertions.assertTrue(list.get(0).equals(Arrays.asList(1, 2, 3, 4, 1)));
+        Assertions.assertTrue(list.get(1).equals(Arrays.asList(1, 2, 4, 1)));
+        Assertions.assertTrue(list.get(2).equals(Arrays.asList(2, 3, 2)));
+
+        // Search can be repeated
+        Assertions.assertTrue(search.findAllCycles().equals(list));
+    }
+
+    @Test
+    void negativeEdges() {
+        // Only edges with positive weight are followed, like adjacency of the original Graph
+        CsrGraph g = Graph.fromString("0,1.0,0,\n-1.0,0,2.0,\n0,3.0,0,\n", true).compile();
+        List<List<Integer>> list = new ElementaryCycles(g).findAllCycles();
+        Assertions.assertTrue(list.size() == 1);
+        Assertions.assertTrue(list.get(0).equals(Arrays.asList(1, 2, 1)));
+
+        List<List<Integer>> bounded = new ArrayList<>();
+        new ElementaryCycles(g).findCycles(1, 2, (cycle, length) -> {
+            bounded.add(Arrays.asList(cycle[0], cycle[1], cycle[2]));
+            return true;
+        });
+        Assertions.assertTrue(bounded.equals(list));
+    }
+
+    @Test
+    void randomGraphs() {
+        Random random = new Random(3);
+        for (int test = 0; test < 50; test++) {
+            Graph source = new Graph();
+            int size = 2 + random.nextInt(8);
+            for (int i = 0; i < size; i++) {
+                source.addVertex();
+            }
+            int edges = random.nextInt(size * 3);
+            for (int i = 0; i < edges; i++) {
+                source.addEdge(random.nextInt(size), random.nextInt(size), 1);
+            }
+            CsrGraph g = source.compile();
+
+            List<List<Integer>> expected = new ArrayList<>();
+            for (int start = 0; start < size; start++) {
+                boolean[] onPath = new boolean[size];
+                onPath[start] = true;
+                bruteForce(g, start, new ArrayList<>(Collections.singletonList(start)), onPath, expected);
+            }
+            List<List<Integer>> actual = new ElementaryCycles(g).findAllCycles();
+            Assertions.assertTrue(sorted(actual).equals(sorted(expected)));
+
+            // Cycles through each vertex
+            ElementaryCycles search = new ElementaryCycles(g);
+            for (int vertex = 0; vertex < size; vertex++) {
+                List<List<Integer>> through = new ArrayList<>();
+                for (List<Integer> cycle : expected) {
+                    if (cycle.contains(vertex)) {
+                        through.add(cycle);
+                    }
+                }
+                int v = vertex;
+                List<List<Integer>> found = new ArrayList<>();
+                search.findCycles(vertex, (cycle, length) -> {
+                    List<Integer> list = new ArrayList<>();
+                    for (int i = 0; i < length; i++) {
+                        list.add(cycle[i]);
+                    }
+                    if (list.contains(v)) {
+                        found.add(list);
+                    }
+                    return true;
+                });
+                Assertions.assertTrue(sorted(found).equals(sorted(through)));
+
+                // Bounded search gives the same cycles with at most 3 edges
+                List<List<Integer>> shortCycles = new ArrayList<>();
+                for (List<Integer> cycle : through) {
+                    if (cycle.size() <= 4) {
+                        shortCycles.add(cycle);
+                    }
+                }
+                List<List<Integer>> bounded = new ArrayList<>();
+                search.findCycles(vertex, 3, (cycle, length) -> {
+                    List<Integer> list = new ArrayList<>();
+                    for (int i = 0; i < length; i++) {
+                        list.add(cycle[i]);
+                    }
+                    bounded.add(list);
+                    return true;
+                });
+                Assertions.assertTrue(sorted(bounded).equals(sorted(shortCycles)));
+            }
+        }
+    }
+
+    @Test
+    void largeGraphs() {
+        // Ring is searched without deep recursion
+        Graph ring = new Graph();
+        int size = 200000;
+        for (int i = 0; i < size; i++) {
+            ring.addVertex();
+        }
+        for (int i = 0; i < size; i++) {
+            ring.addEdge(i, (i + 1) % size, 1);
+        }
+        int[] count = new int[1];
+        new ElementaryCycles(ring).findAllCycles((cycle, length) -> {
+            Assertions.assertTrue(length == size + 1 && cycle[0] == 0 && cycle[size] == 0);
+            count[0]++;
+            return true;
+        });
+        Assertions.assertTrue(count[0] == 1);
+
+        // Complete graph has too many cycles, visitor stops the search
+        Graph complete = new Graph();
+        for (int i = 0; i < 20; i++) {
+            complete.addVertex();
+        }
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 20; j++) {
+                if (i != j) {
+                    complete.addEdge(i, j, 1);
+                }
+            }
+        }
+        count[0] = 0;
+        new ElementaryCycles(complete).findAllCycles((cycle, length) -> ++count[0] < 1000);
+        Assertions.assertTrue(count[0] == 1000);
+    }
+}
@@ -0,0 +1,208 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+import ws.skif.graph.models.Route;
+import ws.skif.graph.models.StationIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+class GraphSnapshotTest {
+
+    private static CsrGraph graph;
+    private static CsrGraph negativeGraph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString()).compile();
+
+        str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,-2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        negativeGraph = Graph.fromString(str.toString(), true).compile()
+                .withCoordinates(new double[]{1, 2, 3, 4, 5}, new double[]{-1, -2, -3, -4, -5});
+    }
+
+    private static void assertSameGraph(CsrGraph expected, CsrGraph actual) {
+        Assertions.assertTrue(expected.getCount() == actual.getCount());
+        Assertions.assertTrue(expected.isNegativeEdge() == actual.isNegativeEdge());
+        Assertions.assertTrue(Arrays.equals(expected.getOffsets(), actual.getOffsets()));
+        Assertions.assertTrue(Arrays.equals(expected.getTargets(), actual.getTargets()));
+        Assertions.assertTrue(Arrays.equals(expected.getWeights(), actual.getWeights()));
+        Assertions.assertTrue(Arrays.equals(expected.getLatitudes(), actual.getLatitudes()));
+        Assertions.assertTrue(Arrays.equals(expected.getLongitudes(), actual.getLongitudes()));
+    }
+
+    private static int cycleCount(GraphUtils utils) {
+        int count = 0;
+        for (int i = 0; i < utils.getGraph().getCount(); i++) {
+            List<Route> routes = utils.commisVoyageur(i, -1, -1).getRoutes();
+            count += routes.size();
+        }
+        return count;
+    }
+
+    @Test
+    void eager() throws IOException {
+        for (CsrGraph g : new CsrGraph[]{graph, negativeGraph}) {
+            GraphUtils utils = new GraphUtils(g);
+            File file = File.createTempFile("graph", ".ttg");
+            try {
+                GraphSnapshot.write(utils, file.getAbsolutePath());
+                GraphUtils copy = GraphSnapshot.read(file.getAbsolutePath());
+
+                assertSameGraph(g, copy.getGraph());
+                Assertions.assertFalse(copy.isLazy());
+                Assertions.assertTrue(copy.getStrategy() == utils.getStrategy());
+                // Cycles are not written, they are searched on request
+                Assertions.assertTrue(copy.getComputedCycles() == null);
+                for (int i = 0; i < g.getCount(); i++) {
+                    for (int j = 0; j < g.getCount(); j++) {
+                        Assertions.assertTrue(copy.getPathLength(i, j) == utils.getPathLength(i, j));
+                        Assertions.assertTrue(copy.getPath(i, j).equals(utils.getPath(i, j)));
+                        Assertions.assertTrue(copy.hasExactPath(i, j) == utils.hasExactPath(i, j));
+                    }
+                }
+                Assertions.assertTrue(cycleCount(copy) == cycleCount(utils));
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    void lazy() throws IOException {
+        GraphUtils utils = new GraphUtils(negativeGraph, 2);
+        File file = File.createTempFile("graph", ".ttg");
+        try {
+            GraphSnapshot.write(utils, file.getAbsolutePath());
+            GraphUtils copy = GraphSnapshot.read(file.getAbsolutePath(), 2);
+
+            Assertions.assertTrue(copy.isLazy());
+            Assertions.assertTrue(copy.getStrategy() == GraphUtils.Strategy.JOHNSON);
+            Assertions.assertTrue(Arrays.equals(copy.getPotentials(), utils.getPotentials()));
+            Assertions.assertTrue(copy.getComputedCycles() == null);
+            for (int i = 0; i < negativeGraph.getCount(); i++) {
+                for (int j = 0; j < negativeGraph.getCount(); j++) {
+                    Assertions.assertTrue(copy.getPathLength(i, j) == utils.getPathLength(i, j));
+                }
+            }
+
+            // Eager mode computes matrixes missing in snapshot
+            GraphUtils eager = GraphSnapshot.read(file.getAbsolutePath());
+            Assertions.assertFalse(eager.isLazy());
+            Assertions.assertTrue(eager.getPathLength(0, 4) == utils.getPathLength(0, 4));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void graphOnly() throws IOException {
+        File file = File.createTempFile("graph", ".ttg");
+        try {
+            GraphSnapshot.writeGraph(negativeGraph, file.getAbsolutePath());
+            assertSameGraph(negativeGraph, GraphSnapshot.readGraph(file.getAbsolutePath()));
+
+            GraphUtils utils = GraphSnapshot.read(file.getAbsolutePath(), 2);
+            Assertions.assertTrue(utils.isLazy());
+            Assertions.assertTrue(utils.getStrategy() == GraphUtils.Strategy.JOHNSON);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void stations() throws IOException {
+        StationIndex stations = new StationIndex();
+        for (String name : new String[]{"Amsterdam", "Berlin", "Zürich", "Dresden", "Essen"}) {
+            stations.intern(name);
+        }
+        GraphUtils utils = new GraphUtils(graph.withSource(), 2);
+        File file = File.createTempFile("graph", ".ttg");
+        try {
+            Assertions.assertThrows(IllegalArgumentException.class,
+                                    () -> GraphSnapshot.write(utils, stations, file.getAbsolutePath()));
+
+            GraphUtils named = new GraphUtils(graph, 2);
+            GraphSnapshot.write(named, stations, file.getAbsolutePath());
+            StationIndex copy = new StationIndex();
+            GraphUtils restored = GraphSnapshot.read(file.getAbsolutePath(), 2, copy);
+            Assertions.assertTrue(copy.size() == 5);
+            Assertions.assertTrue(copy.getName(2).equals("Zürich"));
+            Assertions.assertTrue(copy.find("Essen") == 4);
+            Assertions.assertTrue(restored.getPathLength(0, 2) == named.getPathLength(0, 2));
+
+            // Names are skipped without index
+            Assertions.assertTrue(GraphSnapshot.read(file.getAbsolutePath(), 2).getPathLength(0, 2) == 9.0);
+
+            // Snapshot of version 1 has no names
+            GraphSnapshot.write(named, file.getAbsolutePath());
+            byte[] data = Files.readAllBytes(file.toPath());
+            data[4] = 1;
+            Files.write(file.toPath(), data);
+            StationIndex empty = new StationIndex();
+            Assertions.assertTrue(GraphSnapshot.read(file.getAbsolutePath(), empty).getPathLength(0, 2) == 9.0);
+            Assertions.assertTrue(empty.size() == 0);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void invalidFile() throws IOException {
+        File file = File.createTempFile("graph", ".ttg");
+        try {
+            Files.write(file.toPath(), "0,5.0,0,5.0,7.0,\n".getBytes());
+            Assertions.assertThrows(IOException.class, () -> GraphSnapshot.readGraph(file.getAbsolutePath()));
+
+            GraphSnapshot.writeGraph(graph, file.getAbsolutePath());
+            byte[] data = Files.readAllBytes(file.toPath());
+            Files.write(file.toPath(), Arrays.copyOf(data, data.length - 5));
+            Assertions.assertThrows(IOException.class, () -> GraphSnapshot.readGraph(file.getAbsolutePath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void invalidHeader() throws IOException {
+        File file = File.createTempFile("graph", ".ttg");
+        try {
+            GraphSnapshot.write(new GraphUtils(graph), file.getAbsolutePath());
+            byte[] data = Files.readAllBytes(file.toPath());
+
+            // Vertexes, edges and strategy follow magic, version and flags
+            int[][] headers = {{12, -1}, {12, Integer.MAX_VALUE}, {16, -1}, {16, Integer.MAX_VALUE / 8},
+                               {20, GraphUtils.Strategy.values().length}, {20, -1}};
+            for (int[] header : headers) {
+                byte[] invalid = data.clone();
+                for (int i = 0; i < 4; i++) {
+                    invalid[header[0] + i] = (byte) (header[1] >>> (8 * i));
+                }
+                Files.write(file.toPath(), invalid);
+                Assertions.assertThrows(IOException.class, () -> GraphSnapshot.read(file.getAbsolutePath()));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -3,12 +3,19 @@ package ws.skif.graph.utils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
 import ws.skif.graph.models.Graph;
 
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GraphUtilsTest {
     private static GraphUtils utils;
+    private static GraphUtils sparseUtils;
+    private static GraphUtils lazyUtils;
 
     @BeforeAll
     public static void beforeAll() {
@@ -20,6 +27,8 @@ class GraphUtilsTest {
         str.append("0,3.0,0,0,0,\n");
 
         utils = new GraphUtils(Graph.fromString(str.toString()));
+        sparseUtils = new GraphUtils(Graph.fromString(str.toString(), true));
+        lazyUtils = new GraphUtils(Graph.fromString(str.toString(), true), 2);
     }
 
     @Test
@@ -31,6 +40,29 @@ class GraphUtilsTest {
         Assertions.assertTrue(utils.getPathLength(4, 2) == 7d);
     }
 
+    @Test
+    void getStrategy() {
+        Assertions.assertTrue(utils.getStrategy() == GraphUtils.Strategy.DIJKSTRA);
+        Assertions.assertTrue(lazyUtils.getStrategy() == GraphUtils.Strategy.DIJKSTRA);
+
+        StringBuilder str = new StringBuilder();
+        str.append("0,4.0,2.0,0,\n");
+        str.append("0,0,0,1.0,\n");
+        str.append("0,-3.0,0,5.0,\n");
+        str.append("0,0,0,0,\n");
+        GraphUtils negative = new GraphUtils(Graph.fromString(str.toString(), true));
+        Assertions.assertTrue(negative.getStrategy() == GraphUtils.Strategy.JOHNSON);
+        Assertions.assertTrue(negative.getPathLength(0, 1) == -1d);
+        Assertions.assertTrue(negative.getPathLength(0, 3) == 0d);
+        Assertions.assertTrue(negative.findPathLength(0, 3) == 0d);
+    }
+
+    @Test
+    void getNegativeCycle() {
+        Assertions.assertTrue(utils.getNegativeCycle() == null);
+        Assertions.assertTrue(lazyUtils.getNegativeCycle() == null);
+    }
+
     @Test
     void getPath() {
         Assertions.assertTrue(utils.getPath(0, 1).size() == 2);
@@ -44,6 +76,28 @@ class GraphUtilsTest {
         Assertions.assertTrue(utils.commisVoyageur(2, 3, -1).getRoutes().size() == 2);
     }
 
+    @Test
+    void manyCycles() {
+        // Complete graph has about 10^8 cycles, they are not listed by eager constructor
+        Graph graph = new Graph();
+        int size = 12;
+        for (int i = 0; i < size; i++) {
+            graph.addVertex();
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i != j) {
+                    graph.addEdge(i, j, 1 + (i + j) % 3);
+                }
+            }
+        }
+        GraphUtils complete = new GraphUtils(graph.compile());
+        Assertions.assertFalse(complete.isLazy());
+
+        // Two stops limit cycles through vertex to its loops with each other vertex
+        Assertions.assertTrue(complete.commisVoyageur(5, 2, -1).getRoutes().size() == size - 1);
+    }
+
     @Test
     void findAllRoutes() {
         Assertions.assertTrue(utils.findAllRoutes(0, 2, 4) == 3);
@@ -61,4 +115,197 @@ class GraphUtilsTest {
         Assertions.assertTrue(utils.hasExactPath(0, 3));
         Assertions.assertTrue(utils.hasExactPath(0, 4));
     }
-}
\ No newline at end of file
+
+    @Test
+    void sparseGraph() {
+        Assertions.assertTrue(sparseUtils.getPathLength(0, 2) == 9d);
+        Assertions.assertTrue(sparseUtils.getPathLength(4, 2) == 7d);
+        Assertions.assertTrue(sparseUtils.getPathLength(1, 0) == Double.POSITIVE_INFINITY);
+        Assertions.assertTrue(sparseUtils.getPath(0, 2).size() == 3);
+        Assertions.assertTrue(!sparseUtils.hasExactPath(0, 2));
+        Assertions.assertTrue(sparseUtils.commisVoyageur(2, 3, -1).getRoutes().size() == 2);
+        Assertions.assertTrue(sparseUtils.findAllRoutes(0, 2, 4) == 3);
+        Assertions.assertTrue(sparseUtils.getAllRoutesCount(2, 30) == 7);
+    }
+
+    @Test
+    void lazyMode() {
+        Assertions.assertTrue(lazyUtils.isLazy());
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                Assertions.assertTrue(lazyUtils.getPathLength(i, j) == sparseUtils.getPathLength(i, j));
+                Assertions.assertTrue(lazyUtils.getPath(i, j).equals(sparseUtils.getPath(i, j)));
+                Assertions.assertTrue(lazyUtils.hasExactPath(i, j) == sparseUtils.hasExactPath(i, j));
+            }
+        }
+        Assertions.assertTrue(lazyUtils.commisVoyageur(2, 3, -1).getRoutes().size() == 2);
+        Assertions.assertTrue(lazyUtils.findAllRoutes(0, 2, 4) == 3);
+        Assertions.assertTrue(lazyUtils.getAllRoutesCount(2, 30) == 7);
+    }
+
+    @Test
+    void findPath() {
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                Assertions.assertTrue(utils.findPathLength(i, j) == utils.getPathLength(i, j));
+                Assertions.assertTrue(sparseUtils.findPathLength(i, j) == sparseUtils.getPathLength(i, j));
+                Assertions.assertTrue(sparseUtils.findPath(i, j).size() == sparseUtils.getPath(i, j).size());
+            }
+        }
+    }
+
+    @Test
+    void contractionHierarchy() {
+        // Own instance, shared utils of other tests are not changed
+        GraphUtils hierarchyUtils = new GraphUtils(sparseUtils.getGraph(), 2);
+        hierarchyUtils.useContractionHierarchy();
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                Assertions.assertTrue(hierarchyUtils.findPathLength(i, j) == sparseUtils.getPathLength(i, j));
+                Assertions.assertTrue(hierarchyUtils.findPath(i, j).size() == sparseUtils.getPath(i, j).size());
+            }
+        }
+    }
+
+    @Test
+    void parallelJohnson() {
+        // Chain with shortcuts from the first vertex, big enough to be computed in parallel
+        int size = 100;
+        Graph graph = new Graph();
+        for (int i = 0; i < size; i++) {
+            graph.addVertex();
+        }
+        for (int i = 0; i + 1 < size; i++) {
+            graph.addEdge(i, i + 1, i % 5 == 0 ? -1 : 1 + i % 7);
+        }
+        for (int i = 10; i < size; i += 10) {
+            graph.addEdge(0, i, i + 5);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            GraphUtils sequential = new GraphUtils(graph, (ExecutorService) null);
+            GraphUtils parallel = new GraphUtils(graph, executor);
+            GraphUtils common = new GraphUtils(graph);
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    Assertions.assertTrue(parallel.getPathLength(i, j) == sequential.getPathLength(i, j));
+                    Assertions.assertTrue(common.getPathLength(i, j) == sequential.getPathLength(i, j));
+                    Assertions.assertTrue(parallel.getPath(i, j).equals(sequential.getPath(i, j)));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertSamePaths(GraphUtils expected, GraphUtils actual, int sources) {
+        int count = expected.getGraph().getCount();
+        for (int i = 0; i < sources; i++) {
+            for (int j = 0; j < count; j++) {
+                Assertions.assertTrue(actual.getPathLength(i, j) == expected.getPathLength(i, j));
+                Assertions.assertTrue(actual.hasExactPath(i, j) == expected.hasExactPath(i, j));
+                if (expected.getPathLength(i, j) < Integer.MAX_VALUE) {
+                    // Path may differ on ties, its length may not
+                    double length = 0;
+                    Integer previous = null;
+                    for (Integer vertex : actual.getPath(i, j)) {
+                        if (previous != null) {
+                            length += TreeRepair.minWeight(actual.getGraph(), previous, vertex);
+                        }
+                        previous = vertex;
+                    }
+                    Assertions.assertTrue(length == expected.getPathLength(i, j));
+                }
+            }
+        }
+    }
+
+    @Test
+    void withEdge() {
+        Random random = new Random(21);
+        GraphUtils current = sparseUtils;
+        for (int step = 0; step < 200; step++) {
+            int from = random.nextInt(5);
+            int to = random.nextInt(5);
+            if (from == to) {
+                continue;
+            }
+            GraphUtils changed = random.nextInt(4) == 0
+                    ? current.withoutEdge(from, to)
+                    : current.withEdge(from, to, 1 + random.nextInt(9));
+            assertSamePaths(new GraphUtils(changed.getGraph()), changed, 5);
+            current = changed;
+        }
+
+        // Source instance is not changed
+        Assertions.assertTrue(sparseUtils.getPathLength(0, 2) == 9d);
+        Assertions.assertTrue(sparseUtils.withEdge(0, 2, 1).getPathLength(0, 2) == 1d);
+        Assertions.assertTrue(sparseUtils.getPathLength(0, 2) == 9d);
+        Assertions.assertTrue(utils.withEdge(0, 2, 1).getPathLength(0, 2) == 1d);
+
+        // New negative edge needs new potentials
+        GraphUtils negative = sparseUtils.withEdge(4, 1, -2);
+        Assertions.assertTrue(negative.getStrategy() == GraphUtils.Strategy.JOHNSON);
+        assertSamePaths(new GraphUtils(negative.getGraph()), negative, 5);
+        assertSamePaths(new GraphUtils(negative.getGraph().withEdge(1, 2, 7)), negative.withEdge(1, 2, 7), 5);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sparseUtils.withEdge(0, 5, 1));
+    }
+
+    @Test
+    void withEdgeLazy() {
+        Random random = new Random(21);
+        int size = 300;
+        Graph source = new Graph();
+        for (int i = 0; i < size; i++) {
+            source.addVertex();
+        }
+        for (int i = 0; i < size * 3; i++) {
+            source.addEdge(random.nextInt(size), random.nextInt(size), 1 + random.nextInt(20));
+        }
+        CsrGraph graph = source.compile().withEdge(0, 1, -1);
+
+        GraphUtils current = new GraphUtils(graph, 20);
+        Assertions.assertTrue(current.getStrategy() == GraphUtils.Strategy.JOHNSON);
+        for (int step = 0; step < 100; step++) {
+            // Fill cache, so that trees are repaired
+            for (int i = 0; i < 10; i++) {
+                current.getTree(i);
+            }
+            int from = random.nextInt(size);
+            int to = random.nextInt(size);
+            GraphUtils changed = random.nextInt(4) == 0
+                    ? current.withoutEdge(from, to)
+                    : current.withEdge(from, to, 1 + random.nextInt(20));
+            Assertions.assertTrue(changed.isLazy());
+            assertSamePaths(new GraphUtils(changed.getGraph(), 20), changed, 10);
+            current = changed;
+        }
+    }
+
+    @Test
+    void withEdgeParallel() {
+        int size = 100;
+        Graph graph = new Graph();
+        for (int i = 0; i < size; i++) {
+            graph.addVertex();
+        }
+        for (int i = 0; i + 1 < size; i++) {
+            graph.addEdge(i, i + 1, 1 + i % 7);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            GraphUtils current = new GraphUtils(graph, executor);
+            current = current.withEdge(0, 50, 3);
+            assertSamePaths(new GraphUtils(current.getGraph(), (ExecutorService) null), current, size);
+            current = current.withEdge(20, 21, 100);
+            assertSamePaths(new GraphUtils(current.getGraph(), (ExecutorService) null), current, size);
+            current = current.withoutEdge(0, 50);
+            assertSamePaths(new GraphUtils(current.getGraph(), (ExecutorService) null), current, size);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
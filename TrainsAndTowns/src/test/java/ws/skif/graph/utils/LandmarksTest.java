@@ -0,0 +1,119 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+class LandmarksTest {
+
+    private static CsrGraph graph;
+    private static CsrGraph negativeGraph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString(), true).compile();
+
+        str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,-2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        negativeGraph = Graph.fromString(str.toString(), true).compile();
+    }
+
+    private static void assertLowerBound(CsrGraph g, Landmarks landmarks) {
+        BellmanFord bf = new BellmanFord(g);
+        for (int i = 0; i < g.getCount(); i++) {
+            double[] distances = bf.getDistances(i);
+            for (int j = 0; j < g.getCount(); j++) {
+                Assertions.assertTrue(landmarks.estimate(i, j) <= distances[j]);
+            }
+        }
+    }
+
+    @Test
+    void select() {
+        Landmarks landmarks = Landmarks.select(graph, 2);
+        Assertions.assertTrue(landmarks.getCount() == 2);
+        Assertions.assertTrue(landmarks.getLandmarks()[0] == 2);
+        assertLowerBound(graph, landmarks);
+        assertLowerBound(negativeGraph, Landmarks.select(negativeGraph, 3));
+    }
+
+    @Test
+    void aStar() {
+        AStar aStar = new AStar(graph, Landmarks.select(graph, 2));
+        Dijkstra dijkstra = new Dijkstra(graph);
+        for (int i = 0; i < graph.getCount(); i++) {
+            double[] distances = dijkstra.getDistances(i);
+            for (int j = 0; j < graph.getCount(); j++) {
+                Assertions.assertTrue(aStar.distance(i, j) == distances[j]);
+            }
+        }
+    }
+
+    @Test
+    void graphUtils() {
+        GraphUtils utils = new GraphUtils(negativeGraph);
+        utils.useLandmarks(2);
+        for (int i = 0; i < negativeGraph.getCount(); i++) {
+            for (int j = 0; j < negativeGraph.getCount(); j++) {
+                Assertions.assertTrue(Math.abs(utils.findPathLength(i, j) - utils.getPathLength(i, j)) < 1e-9
+                                              || utils.findPathLength(i, j) == utils.getPathLength(i, j));
+            }
+        }
+    }
+
+    @Test
+    void writeAndRead() throws IOException {
+        Landmarks landmarks = Landmarks.select(graph, 3);
+        File file = File.createTempFile("landmarks", ".alt");
+        try {
+            landmarks.write(file.getAbsolutePath());
+            Landmarks copy = Landmarks.read(file.getAbsolutePath(), graph);
+
+            Assertions.assertTrue(copy.getTotalVertex() == graph.getCount());
+            Assertions.assertTrue(copy.getCount() == 3);
+            for (int i = 0; i < graph.getCount(); i++) {
+                for (int j = 0; j < graph.getCount(); j++) {
+                    Assertions.assertTrue(copy.estimate(i, j) == landmarks.estimate(i, j));
+                }
+            }
+
+            // File of another graph
+            Assertions.assertThrows(IOException.class,
+                                    () -> Landmarks.read(file.getAbsolutePath(), graph.withSource()));
+
+            // Number of landmarks is more than number of vertexes, header is 13 bytes before it
+            byte[] data = Files.readAllBytes(file.toPath());
+            byte[] invalid = data.clone();
+            invalid[16] = 100;
+            Files.write(file.toPath(), invalid);
+            Assertions.assertThrows(IOException.class, () -> Landmarks.read(file.getAbsolutePath(), graph));
+
+            // Truncated distances and extra data
+            Files.write(file.toPath(), Arrays.copyOf(data, data.length - 8));
+            Assertions.assertThrows(IOException.class, () -> Landmarks.read(file.getAbsolutePath(), graph));
+            Files.write(file.toPath(), Arrays.copyOf(data, data.length + 8));
+            Assertions.assertThrows(IOException.class, () -> Landmarks.read(file.getAbsolutePath(), graph));
+        } finally {
+            file.delete();
+        }
+    }
+}
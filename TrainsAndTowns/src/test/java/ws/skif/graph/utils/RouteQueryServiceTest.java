@@ -0,0 +1,88 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+class RouteQueryServiceTest {
+
+    private static Graph graph;
+    private static GraphUtils expected;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString(), true);
+        expected = new GraphUtils(graph);
+    }
+
+    @Test
+    void concurrentQueries() throws Exception {
+        for (RouteQueryService service : new RouteQueryService[]{
+                new RouteQueryService(graph, 2), new RouteQueryService(new GraphUtils(graph))}) {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    final int seed = t;
+                    results.add(executor.submit(() -> {
+                        boolean ok = true;
+                        for (int q = 0; q < 2000; q++) {
+                            int from = (q * 7 + seed) % 5;
+                            int to = (q * 3 + seed * 2) % 5;
+                            ok &= service.distance(from, to) == expected.getPathLength(from, to);
+                            // Path is empty if there is no route
+                            ok &= service.path(from, to).size() == (expected.getPathLength(from, to) < Integer.MAX_VALUE
+                                    ? expected.getPath(from, to).size() : 0);
+                            ok &= service.tree(from).getDistance(to) == expected.getPathLength(from, to);
+                        }
+                        ok &= service.trips(2, 3, -1).getRoutes().size() == 2;
+                        return ok;
+                    }));
+                }
+                for (Future<Boolean> result : results) {
+                    Assertions.assertTrue(result.get());
+                }
+            } finally {
+                executor.shutdown();
+            }
+            Assertions.assertTrue(service.getQueryCount() == 8 * (3 * 2000 + 1));
+        }
+    }
+
+    @Test
+    void cachedTree() {
+        RouteQueryService service = new RouteQueryService(graph, 2);
+        ShortestPathCache cache = service.getUtils().getCache();
+
+        // Without tree the search runs and does not compute a tree
+        Assertions.assertTrue(service.distance(0, 2) == expected.getPathLength(0, 2));
+        Assertions.assertTrue(cache.size() == 0);
+
+        // Tree of source answers both queries
+        service.tree(0);
+        long hits = cache.getHits();
+        Assertions.assertTrue(service.distance(0, 2) == expected.getPathLength(0, 2));
+        Assertions.assertTrue(service.path(0, 2).equals(expected.getPath(0, 2)));
+        Assertions.assertTrue(cache.getHits() == hits + 2);
+        Assertions.assertTrue(service.path(1, 0).isEmpty());
+    }
+
+    @Test
+    void invalidVertex() {
+        RouteQueryService service = new RouteQueryService(expected);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.distance(0, 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.tree(-1));
+    }
+}
@@ -0,0 +1,81 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+class ShortestPathCacheTest {
+
+    private static CsrGraph graph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString(), true).compile();
+    }
+
+    private static ShortestPathTree tree(int source) {
+        return new ShortestPathTree(source, new double[5], new int[5]);
+    }
+
+    @Test
+    void lru() {
+        ShortestPathCache cache = new ShortestPathCache(2);
+        cache.put(tree(0), 1);
+        cache.put(tree(1), 1);
+        Assertions.assertTrue(cache.lookup(0) != null);
+        cache.put(tree(2), 1);
+
+        Assertions.assertTrue(cache.size() == 2);
+        Assertions.assertTrue(cache.lookup(1) == null);
+        Assertions.assertTrue(cache.lookup(0) != null);
+        Assertions.assertTrue(cache.getEvictions() == 1);
+        Assertions.assertTrue(cache.getHits() == 2);
+        Assertions.assertTrue(cache.getMisses() == 1);
+    }
+
+    @Test
+    void maxBytes() {
+        long size = ShortestPathCache.sizeOf(tree(0));
+        ShortestPathCache cache = new ShortestPathCache(10, size * 3, ShortestPathCache.Eviction.LRU);
+        for (int i = 0; i < 5; i++) {
+            cache.put(tree(i), 1);
+        }
+
+        Assertions.assertTrue(cache.size() == 3);
+        Assertions.assertTrue(cache.getBytes() == size * 3);
+    }
+
+    @Test
+    void cost() {
+        ShortestPathCache cache = new ShortestPathCache(2, Long.MAX_VALUE, ShortestPathCache.Eviction.COST);
+        cache.put(tree(0), 100);
+        cache.put(tree(1), 1);
+        cache.put(tree(2), 50);
+
+        Assertions.assertTrue(cache.lookup(0) != null);
+        Assertions.assertTrue(cache.lookup(1) == null);
+        Assertions.assertTrue(cache.lookup(2) != null);
+    }
+
+    @Test
+    void dijkstra() {
+        ShortestPathCache cache = new ShortestPathCache(5);
+        Dijkstra dijkstra = new Dijkstra(graph, cache);
+
+        ShortestPathTree first = dijkstra.getShortestPathTree(0);
+        Assertions.assertTrue(first.getDistance(2) == 9d);
+        Assertions.assertTrue(dijkstra.getShortestPathTree(0) == first);
+        Assertions.assertTrue(new Dijkstra(graph, cache).getDistances(0) == first.getDistances());
+        Assertions.assertTrue(cache.getMisses() == 1);
+        Assertions.assertTrue(cache.getHits() == 2);
+    }
+}
@@ -0,0 +1,111 @@
+package ws.skif.graph.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.CsrGraph;
+import ws.skif.graph.models.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class VersionedGraphTest {
+
+    private static CsrGraph graph;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        graph = Graph.fromString(str.toString(), true).compile();
+    }
+
+    @Test
+    void versions() {
+        VersionedGraph versions = new VersionedGraph(new GraphUtils(graph));
+        VersionedGraph.Version first = versions.current();
+        Assertions.assertTrue(first.getNumber() == 1);
+        Assertions.assertTrue(first.getUtils().getPathLength(0, 2) == 9.0);
+
+        VersionedGraph.Version second = versions.setEdge(0, 2, 1);
+        Assertions.assertTrue(second.getNumber() == 2);
+        Assertions.assertTrue(versions.current() == second);
+        Assertions.assertTrue(second.getUtils().getPathLength(0, 2) == 1.0);
+        Assertions.assertTrue(second.getUtils().getPathLength(0, 4) == 3.0);
+
+        // Old version is not changed
+        Assertions.assertTrue(first.getUtils().getPathLength(0, 2) == 9.0);
+        Assertions.assertTrue(first.getGraph().findEdge(0, 2) == -1);
+
+        VersionedGraph.Version third = versions.removeEdge(0, 2);
+        Assertions.assertTrue(third.getNumber() == 3);
+        Assertions.assertTrue(third.getUtils().getPathLength(0, 2) == 9.0);
+
+        // Nothing to remove, version is not published
+        Assertions.assertTrue(versions.removeEdge(0, 2) == third);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> versions.setEdge(0, 5, 1));
+        Assertions.assertTrue(versions.current() == third);
+    }
+
+    @Test
+    void service() {
+        VersionedGraph versions = new VersionedGraph(new GraphUtils(graph, 2));
+        RouteQueryService service = new RouteQueryService(versions);
+        Assertions.assertTrue(service.distance(0, 2) == 9.0);
+
+        versions.update(utils -> utils.withEdge(0, 2, 1).withEdge(2, 4, 1));
+        Assertions.assertTrue(service.distance(0, 2) == 1.0);
+        Assertions.assertTrue(service.distance(0, 4) == 2.0);
+        Assertions.assertTrue(service.getUtils() == versions.current().getUtils());
+    }
+
+    @Test
+    void concurrentReaders() throws Exception {
+        VersionedGraph versions = new VersionedGraph(new GraphUtils(graph));
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                readers.add(executor.submit(() -> {
+                    long last = 0;
+                    int checked = 0;
+                    do {
+                        VersionedGraph.Version version = versions.current();
+                        Assertions.assertTrue(version.getNumber() >= last);
+                        last = version.getNumber();
+
+                        // Every version is consistent with its own graph
+                        double expected = Math.min(9.0, TreeRepair.minWeight(version.getGraph(), 0, 2));
+                        Assertions.assertTrue(version.getUtils().getPathLength(0, 2) == expected);
+                        Assertions.assertTrue(version.getUtils().getPathLength(0, 4) == Math.min(7.0, expected + 2.0));
+                        checked++;
+                    } while (!done.get());
+                    return checked;
+                }));
+            }
+
+            for (int i = 0; i < 1000; i++) {
+                versions.setEdge(0, 2, i % 2 == 0 ? 1 : 100);
+            }
+            done.set(true);
+            for (Future<Integer> reader : readers) {
+                Assertions.assertTrue(reader.get() > 0);
+            }
+            Assertions.assertTrue(versions.current().getNumber() == 1001);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ws.skif.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.Graph;
+import ws.skif.graph.utils.RouteQueryService;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class BatchProcessorTest {
+
+    private static QueryProtocol protocol;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        protocol = new QueryProtocol(new RouteQueryService(Graph.fromString(str.toString(), true), 2));
+    }
+
+    @Test
+    void process() throws Exception {
+        String[] queries = {"ROUTE A-B-C", "DISTANCE A C", "PATH A C", "TRIPS C 3", "FLY",
+                "DISTANCE B A", "HOPS A C 4", "PATH E D", "CYCLE B", "COUNT C 30", "DISTANCE A Z"};
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            String query = queries[i % queries.length];
+            input.append(query).append('\n');
+            expected.append(protocol.execute(query)).append('\n');
+        }
+        input.append('\n');
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (ExecutorService e : new ExecutorService[]{executor, null}) {
+                StringWriter out = new StringWriter();
+                BatchProcessor processor = new BatchProcessor(protocol, e, 7);
+                long count = processor.process(new BufferedReader(new StringReader(input.toString())), out);
+                Assertions.assertTrue(count == 50);
+                Assertions.assertTrue(out.toString().equals(expected.toString()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertTrue(expected.toString().contains("A-B-C\n"));
+    }
+}
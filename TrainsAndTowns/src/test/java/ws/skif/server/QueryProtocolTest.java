@@ -0,0 +1,75 @@
+package ws.skif.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.Graph;
+import ws.skif.graph.models.StationIndex;
+import ws.skif.graph.utils.GraphUtils;
+import ws.skif.graph.utils.RouteQueryService;
+
+class QueryProtocolTest {
+
+    private static QueryProtocol protocol;
+
+    @BeforeAll
+    public static void beforeAll() {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        protocol = new QueryProtocol(new RouteQueryService(new GraphUtils(Graph.fromString(str.toString()))));
+    }
+
+    @Test
+    void execute() {
+        Assertions.assertTrue(protocol.execute("ROUTE A-B-C").equals("9.0"));
+        Assertions.assertTrue(protocol.execute("route 0-3").equals("5.0"));
+        Assertions.assertTrue(protocol.execute("ROUTE A-E-D").equals(QueryProtocol.NO_ROUTE));
+        Assertions.assertTrue(protocol.execute("TRIPS C 3").equals("2"));
+        Assertions.assertTrue(protocol.execute("HOPS A C 4").equals("3"));
+        Assertions.assertTrue(protocol.execute("DISTANCE A C").equals("9.0"));
+        Assertions.assertTrue(protocol.execute("CYCLE B").equals("9.0"));
+        Assertions.assertTrue(protocol.execute("COUNT C 30").equals("7"));
+        Assertions.assertTrue(protocol.execute("PATH A C").equals("A-B-C"));
+        Assertions.assertTrue(protocol.execute("PATH 0 2").equals("0-1-2"));
+        Assertions.assertTrue(protocol.execute("DISTANCE B A").equals(QueryProtocol.NO_ROUTE));
+        Assertions.assertTrue(protocol.execute("PATH B A").equals(QueryProtocol.NO_ROUTE));
+    }
+
+    @Test
+    void pathQueries() {
+        // Path is one search, it is counted once
+        long count = protocol.getService().getQueryCount();
+        protocol.execute("PATH A C");
+        protocol.execute("PATH E A");
+        Assertions.assertTrue(protocol.getService().getQueryCount() == count + 2);
+    }
+
+    @Test
+    void stations() {
+        StationIndex stations = new StationIndex();
+        for (String name : new String[]{"Kyiv-Pas", "Lviv", "Odesa", "Kharkiv", "Dnipro"}) {
+            stations.intern(name);
+        }
+        QueryProtocol named = new QueryProtocol(protocol.getService(), stations);
+
+        Assertions.assertTrue(named.execute("PATH Kyiv-Pas Odesa").equals("Kyiv-Pas-Lviv-Odesa"));
+        Assertions.assertTrue(named.execute("DISTANCE Kyiv-Pas Odesa").equals("9.0"));
+        Assertions.assertTrue(named.execute("HOPS Kyiv-Pas Odesa 4").equals("3"));
+        Assertions.assertTrue(named.execute("DISTANCE Kyiv-Pas Rivne").startsWith("ERROR"));
+        Assertions.assertTrue(named.execute("DISTANCE A C").startsWith("ERROR"));
+    }
+
+    @Test
+    void errors() {
+        Assertions.assertTrue(protocol.execute("FLY A B").startsWith("ERROR"));
+        Assertions.assertTrue(protocol.execute("DISTANCE A").startsWith("ERROR"));
+        Assertions.assertTrue(protocol.execute("DISTANCE A Z").startsWith("ERROR"));
+        Assertions.assertTrue(protocol.execute("HOPS A C x").startsWith("ERROR"));
+        Assertions.assertTrue(protocol.execute("").startsWith("ERROR"));
+    }
+}
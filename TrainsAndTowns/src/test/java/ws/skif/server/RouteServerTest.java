@@ -0,0 +1,74 @@
+package ws.skif.server;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ws.skif.graph.models.Graph;
+import ws.skif.graph.utils.RouteQueryService;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+class RouteServerTest {
+
+    @Test
+    void serve() throws Exception {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        RouteQueryService service = new RouteQueryService(Graph.fromString(str.toString(), true), 5);
+        try (RouteServer server = new RouteServer(new QueryProtocol(service), 0)) {
+            for (int i = 0; i < 3; i++) {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                     PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                                                                              StandardCharsets.UTF_8), true);
+                     BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                                  StandardCharsets.UTF_8))) {
+                    out.println("DISTANCE A C");
+                    Assertions.assertTrue(in.readLine().equals("9.0"));
+                    out.println("TRIPS C 3");
+                    Assertions.assertTrue(in.readLine().equals("2"));
+                    out.println("FLY");
+                    Assertions.assertTrue(in.readLine().startsWith("ERROR"));
+                    out.println("QUIT");
+                    Assertions.assertTrue(in.readLine() == null);
+                }
+            }
+        }
+        Assertions.assertTrue(service.getQueryCount() == 6);
+    }
+
+    @Test
+    void closeIdleConnection() throws Exception {
+        StringBuilder str = new StringBuilder();
+        str.append("0,5.0,0,5.0,7.0,\n");
+        str.append("0,0,4.0,0,0,\n");
+        str.append("0,0,0,8.0,2.0,\n");
+        str.append("0,0,8.0,0,6.0,\n");
+        str.append("0,3.0,0,0,0,\n");
+
+        RouteQueryService service = new RouteQueryService(Graph.fromString(str.toString(), true), 5);
+        RouteServer server = new RouteServer(new QueryProtocol(service), 0, 1);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                                                                      StandardCharsets.UTF_8), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                          StandardCharsets.UTF_8))) {
+            out.println("DISTANCE A C");
+            Assertions.assertTrue(in.readLine().equals("9.0"));
+
+            // Handler waits for the next query, closing server closes the connection
+            long start = System.nanoTime();
+            server.close();
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+            socket.setSoTimeout(3000);
+            Assertions.assertTrue(in.readLine() == null);
+        }
+    }
+}